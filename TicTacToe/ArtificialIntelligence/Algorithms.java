@@ -4,6 +4,10 @@ import TicTacToe.Board;
 
 /**
  * Uses various algorithms to play Tic Tac Toe.
+ *
+ * Every method plays its move on the board. They make a new engine for every
+ * move (see {@link Engines}), except for Monte Carlo Tree Search, which keeps
+ * a single tree for every caller.
  */
 public class Algorithms {
 
@@ -12,12 +16,21 @@ public class Algorithms {
      */
     private Algorithms() {}
 
+    /**
+     * Play the move chosen by an engine.
+     * @param engine    the engine to search with
+     * @param board     the Tic Tac Toe board to play on
+     */
+    private static void play (Engine engine, Board board) {
+        board.move(engine.search(board).getMove());
+    }
+
     /**
      * Play a random move.
      * @param board     the Tic Tac Toe board to play on
      */
     public static void random (Board board) {
-        Random.run(board);
+        play(Engines.random(), board);
     }
 
     /**
@@ -25,7 +38,7 @@ public class Algorithms {
      * @param board     the Tic Tac Toe board to play on
      */
     public static void miniMax (Board board) {
-        MiniMax.run(board.getTurn(), board, Double.POSITIVE_INFINITY);
+        play(Engines.miniMax(), board);
     }
 
     /**
@@ -34,7 +47,7 @@ public class Algorithms {
      * @param ply       the maximum depth
      */
     public static void miniMax (Board board, int ply) {
-        MiniMax.run(board.getTurn(), board, ply);
+        play(Engines.miniMax(ply), board);
     }
 
     /**
@@ -42,7 +55,7 @@ public class Algorithms {
      * @param board     the Tic Tac Toe board to play on
      */
     public static void alphaBetaPruning (Board board) {
-        AlphaBetaPruning.run(board.getTurn(), board, Double.POSITIVE_INFINITY);
+        play(Engines.alphaBetaPruning(), board);
     }
 
     /**
@@ -51,7 +64,7 @@ public class Algorithms {
      * @param ply       the maximum depth
      */
     public static void alphaBetaPruning (Board board, int ply) {
-        AlphaBetaPruning.run(board.getTurn(), board, ply);
+        play(Engines.alphaBetaPruning(ply), board);
     }
 
     /**
@@ -60,7 +73,7 @@ public class Algorithms {
      * @param board     the Tic Tac Toe board to play on
      */
     public static void alphaBetaAdvanced (Board board) {
-        AlphaBetaAdvanced.run(board.getTurn(), board, Double.POSITIVE_INFINITY);
+        play(Engines.alphaBetaAdvanced(), board);
     }
 
     /**
@@ -70,7 +83,149 @@ public class Algorithms {
      * @param ply       the maximum depth
      */
     public static void alphaBetaAdvanced (Board board, int ply) {
-        AlphaBetaAdvanced.run(board.getTurn(), board, ply);
+        play(Engines.alphaBetaAdvanced(ply), board);
+    }
+
+    /**
+     * Play using Principal Variation Search (NegaScout), which searches every
+     * move after the first with a zero window.
+     * @param board     the Tic Tac Toe board to play on
+     */
+    public static void principalVariationSearch (Board board) {
+        play(Engines.principalVariationSearch(), board);
+    }
+
+    /**
+     * Play using Principal Variation Search (NegaScout). Include a depth limit.
+     * @param board     the Tic Tac Toe board to play on
+     * @param ply       the maximum depth
+     */
+    public static void principalVariationSearch (Board board, int ply) {
+        play(Engines.principalVariationSearch(ply), board);
+    }
+
+    /**
+     * Play using MTD(f), which finds the score with a series of zero window
+     * searches backed by a transposition table.
+     * @param board     the Tic Tac Toe board to play on
+     */
+    public static void mtdf (Board board) {
+        play(Engines.mtdf(), board);
+    }
+
+    /**
+     * Play using MTD(f). Include a depth limit.
+     * @param board     the Tic Tac Toe board to play on
+     * @param ply       the maximum depth
+     */
+    public static void mtdf (Board board, int ply) {
+        play(Engines.mtdf(ply), board);
+    }
+
+    /**
+     * Play using the Alpha-Beta Pruning algorithm with depth in the evaluation
+     * function, searching on several threads at once.
+     * @param board     the Tic Tac Toe board to play on
+     * @param threads   the number of threads to search with
+     */
+    public static void parallelAlphaBeta (Board board, int threads) {
+        play(Engines.parallelAlphaBeta(threads), board);
+    }
+
+    /**
+     * Play using the Alpha-Beta Pruning algorithm with depth in the evaluation
+     * function, searching on several threads at once. Include a depth limit.
+     * @param board     the Tic Tac Toe board to play on
+     * @param threads   the number of threads to search with
+     * @param ply       the maximum depth
+     */
+    public static void parallelAlphaBeta (Board board, int threads, int ply) {
+        play(Engines.parallelAlphaBeta(threads, ply), board);
+    }
+
+    /**
+     * Play using the Alpha-Beta Pruning algorithm with depth in the evaluation
+     * function. Searches deeper and deeper until the time limit runs out, and
+     * plays the move of the deepest search that finished.
+     * @param board         the Tic Tac Toe board to play on
+     * @param milliseconds  the time limit
+     */
+    public static void iterativeDeepening (Board board, long milliseconds) {
+        play(Engines.iterativeDeepening(milliseconds), board);
+    }
+
+    /**
+     * Play using the Alpha-Beta Pruning algorithm with depth in the evaluation
+     * function. Searches deeper and deeper until the time limit or the node
+     * limit runs out, and plays the move of the deepest search that finished.
+     * @param board         the Tic Tac Toe board to play on
+     * @param milliseconds  the time limit
+     * @param nodes         the maximum number of positions to visit
+     */
+    public static void iterativeDeepening (Board board, long milliseconds, long nodes) {
+        play(Engines.iterativeDeepening(milliseconds, nodes), board);
+    }
+
+    /**
+     * Play using iterative deepening Alpha-Beta searches with depth in the
+     * evaluation function, running on several threads at once that share
+     * what they find through the transposition table (Lazy SMP).
+     * @param board         the Tic Tac Toe board to play on
+     * @param milliseconds  the time limit
+     * @param threads       the number of threads to search with
+     */
+    public static void lazySMP (Board board, long milliseconds, int threads) {
+        play(Engines.lazySMP(milliseconds, threads), board);
+    }
+
+    /**
+     * Play using Monte Carlo Tree Search, which plays random games and grows
+     * a tree towards the moves that win the most of them. Uses the same time
+     * limit as play() and keeps the tree for the next move of the game.
+     * @param board     the Tic Tac Toe board to play on
+     */
+    public static void monteCarloTreeSearch (Board board) {
+        board.move(MonteCarloTreeSearch.runShared(board, Engines.PLAY_MILLISECONDS, Long.MAX_VALUE).getMove());
+    }
+
+    /**
+     * Play using Monte Carlo Tree Search within a time limit.
+     * @param board         the Tic Tac Toe board to play on
+     * @param milliseconds  the time limit
+     */
+    public static void monteCarloTreeSearch (Board board, long milliseconds) {
+        board.move(MonteCarloTreeSearch.runShared(board, milliseconds, Long.MAX_VALUE).getMove());
+    }
+
+    /**
+     * Play using Monte Carlo Tree Search within a time limit and a number of
+     * random games, whichever runs out first.
+     * @param board         the Tic Tac Toe board to play on
+     * @param milliseconds  the time limit
+     * @param iterations    the maximum number of random games
+     */
+    public static void monteCarloTreeSearch (Board board, long milliseconds, long iterations) {
+        board.move(MonteCarloTreeSearch.runShared(board, milliseconds, iterations).getMove());
+    }
+
+    /**
+     * Play using the strongest algorithm that still answers quickly on the
+     * size of the board: the perfect play table on the classic 3x3 board, a
+     * complete Alpha-Beta search on boards of up to 16 cells, and an
+     * iterative deepening Alpha-Beta search with a time limit on larger boards.
+     * @param board     the Tic Tac Toe board to play on
+     */
+    public static void play (Board board) {
+        play(Engines.play(), board);
+    }
+
+    /**
+     * Play the perfect move by looking it up in a table of every 3x3 position.
+     * Does not search, so it answers in constant time.
+     * @param board     the Tic Tac Toe board to play on
+     */
+    public static void perfectPlay (Board board) {
+        play(Engines.perfectPlay(), board);
     }
 
 }
@@ -2,6 +2,15 @@ package ArtificialIntelligence;
 
 import TicTacToe.Board;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Uses the Alpha-Beta Pruning algorithm to play a move in a game of Tic Tac Toe
  * but includes depth in the evaluation function.
@@ -14,30 +23,392 @@ import TicTacToe.Board;
  * still wins inevitably, but it chooses a longer route. By adding the depth
  * into the evaluation function, it allows the AI to pick the move that would
  * make it win as soon as possible.
+ *
+ * Positions that have already been searched are remembered in a transposition
+ * table. The table is kept between searches, so positions from previous moves
+ * and previous games are not searched again. Positions that are rotations or
+ * reflections of each other share a single entry. The moves of every position
+ * are searched in the order chosen by MoveOrdering, starting with the best
+ * move stored in the table.
+ *
+ * The positions where a depth limited search is cut off are scored by an
+ * Evaluator, and wins and losses are scored beyond every evaluation. Searches
+ * with different evaluators keep their positions apart in the transposition
+ * table, since their scores cannot be compared.
+ *
+ * The search can also run on a ForkJoinPool (Young Brothers Wait): at the
+ * root and at other positions with enough depth left, the first move is
+ * searched alone to set a bound, and the rest of the moves are then searched
+ * in parallel on copies of the board. Every search keeps its own state and
+ * only the transposition table is shared, so any number of searches can run
+ * at the same time. LazySMP relies on this to run several of them on the same
+ * position.
  */
 class AlphaBetaAdvanced {
 
-    private static double maxPly;
+    /**
+     * The amount of memory used by the transposition table.
+     */
+    private static final int TABLE_MEGABYTES = 16;
+
+    /**
+     * The transposition table is shared by every search, including searches
+     * that run at the same time on other threads.
+     */
+    private static final TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+
+    /**
+     * The search stops when the deadline (from System.nanoTime()) passes or
+     * when the number of positions visited reaches the limit. The clock is
+     * only read once every CLOCK_INTERVAL positions.
+     */
+    private static final int CLOCK_INTERVAL = 256;
+
+    /**
+     * A parallel search only hands out the siblings of a position to other
+     * threads when at least this many plies are left below it. Smaller
+     * subtrees are cheaper to search than to hand out.
+     */
+    private static final int MIN_SPLIT_DEPTH = 4;
+
+    private double maxPly;
+
+    /**
+     * The moves available at each depth of the search. Allocated once per
+     * depth so that the recursion does not allocate.
+     */
+    private int[][] moves = new int[0][];
+
+    private long deadline;
+    private long nodeLimit;
+    private long nodes;
+    private boolean aborted;
+
+    /**
+     * Where the search counts what it does (null if nothing is counted). The
+     * search of a sibling counts into statistics of its own, which are added
+     * to these ones through the split point.
+     */
+    private SearchStatistics statistics;
+
+    /**
+     * Where the search counts the positions it visits, once every
+     * CLOCK_INTERVAL of them, and which can stop it (null if there is none).
+     */
+    private SearchProgress progress;
+
+    /**
+     * The tablebase that the positions with few enough empty cells are looked
+     * up in (null if there is none for the board being searched).
+     */
+    private Tablebase tablebase;
+
+    /**
+     * The move chosen at the root by the last search.
+     */
+    private int bestMove;
+
+    /**
+     * The best line of play found by the last search that finished, and the
+     * position it starts from. A search of the same position follows it first.
+     */
+    private int[] principalVariation = new int[0];
+    private int principalVariationLength;
+    private long principalVariationRoot;
+    private boolean followPrincipalVariation;
 
     /**
-     * AlphaBetaAdvanced cannot be instantiated.
+     * The pool that siblings are searched on in a parallel search (null when
+     * the search runs on a single thread), and the split point that this
+     * search was handed out from (null for the search of the root).
      */
-    private AlphaBetaAdvanced() {}
+    private final ForkJoinPool pool;
+    private final SplitPoint splitPoint;
+
+    /**
+     * The number of the helper thread in a Lazy SMP search (0 for the main
+     * thread). Helpers search the moves of every position in a different
+     * order, so that they do not all search the same subtrees.
+     */
+    private final int helper;
+
+    /**
+     * Set by another thread to make the search give up. The searches of the
+     * siblings handed out at split points share the flag of the search of
+     * the root, so that they give up with it.
+     */
+    private final AtomicBoolean stopped;
+
+    /**
+     * The heuristics that the moves are ordered by, and the move ordering of
+     * the board being searched.
+     */
+    private final Set<MoveOrdering.Heuristic> heuristics;
+    private MoveOrdering ordering;
+
+    /**
+     * The evaluator of the positions where the search is cut off, and the
+     * number mixed into the hash of every position it scores.
+     */
+    private final Evaluator evaluator;
+    private final long salt;
+
+    /**
+     * Construct a search that runs on the calling thread.
+     */
+    AlphaBetaAdvanced () {
+        this(null, 0, MoveOrdering.ALL, Evaluator.LINES);
+    }
+
+    /**
+     * Construct a search that runs on the calling thread and scores the
+     * positions where it is cut off with the given evaluator.
+     * @param evaluator     the evaluator of the positions at the maximum depth
+     */
+    AlphaBetaAdvanced (Evaluator evaluator) {
+        this(null, 0, MoveOrdering.ALL, evaluator);
+    }
+
+    /**
+     * Construct a search that runs on the calling thread and orders its moves
+     * by the given heuristics only.
+     * @param heuristics    the heuristics to order the moves by
+     */
+    AlphaBetaAdvanced (Set<MoveOrdering.Heuristic> heuristics) {
+        this(null, 0, heuristics, Evaluator.LINES);
+    }
+
+    /**
+     * Construct a search that splits its work between the threads of a pool.
+     * The search itself must be started from inside the pool.
+     * @param pool          the pool to search on (null to search on one thread)
+     */
+    AlphaBetaAdvanced (ForkJoinPool pool) {
+        this(pool, 0, MoveOrdering.ALL, Evaluator.LINES);
+    }
+
+    /**
+     * Construct a search that runs on the calling thread as one of the
+     * helpers of a Lazy SMP search.
+     * @param helper        the number of the helper (0 for the main thread)
+     */
+    AlphaBetaAdvanced (int helper) {
+        this(null, helper, MoveOrdering.ALL, Evaluator.LINES);
+    }
+
+    /**
+     * Construct a search.
+     * @param pool          the pool to search on (null to search on one thread)
+     * @param helper        the number of the helper (0 for the main thread)
+     * @param heuristics    the heuristics to order the moves by
+     * @param evaluator     the evaluator of the positions at the maximum depth
+     */
+    private AlphaBetaAdvanced (ForkJoinPool pool, int helper, Set<MoveOrdering.Heuristic> heuristics,
+                               Evaluator evaluator) {
+        this.pool = pool;
+        this.splitPoint = null;
+        this.stopped = new AtomicBoolean();
+        this.helper = helper;
+        this.heuristics = heuristics;
+        this.evaluator = evaluator;
+        this.salt = System.identityHashCode(evaluator) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Construct the search of a sibling that was handed out at a split point.
+     * @param parent        the search that owns the split point
+     * @param splitPoint    the split point
+     */
+    private AlphaBetaAdvanced (AlphaBetaAdvanced parent, SplitPoint splitPoint) {
+        this.pool = parent.pool;
+        this.splitPoint = splitPoint;
+        this.stopped = parent.stopped;
+        this.helper = parent.helper;
+        this.heuristics = parent.heuristics;
+        this.evaluator = parent.evaluator;
+        this.salt = parent.salt;
+        this.tablebase = parent.tablebase;
+        this.progress = parent.progress;
+        this.ordering = new MoveOrdering(parent.ordering);
+        this.maxPly = parent.maxPly;
+        this.deadline = parent.deadline;
+        this.nodeLimit = Long.MAX_VALUE;
+        this.statistics = (parent.statistics == null) ? null : new SearchStatistics();
+    }
 
     /**
      * Execute the algorithm.
-     * @param player        the player that the AI will identify as
-     * @param board         the Tic Tac Toe board to play on
+     * @param board         the Tic Tac Toe board to search
      * @param maxPly        the maximum depth
+     * @param statistics    where to count what the search does (null to not count it)
+     * @return              the best move for the player to move
      */
-    static void run (Board.State player, Board board, double maxPly) {
+    SearchResult run (Board board, double maxPly, SearchStatistics statistics) {
 
         if (maxPly < 1) {
             throw new IllegalArgumentException("Maximum depth must be greater than 0.");
         }
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
+
+        setStatistics(statistics);
+        newSearch(board);
+        int score = search(board.getTurn(), board, maxPly, Long.MAX_VALUE, Long.MAX_VALUE);
+        int depth = (int)Math.min(maxPly, board.getAvailableMoveCount());
+        return new SearchResult(bestMove, score, depth, nodes, isExact(board, score, depth));
+    }
+
+    /**
+     * Search the position without playing a move. The search gives up when
+     * the deadline passes or the node limit is reached, in which case
+     * isAborted() returns true and the result must be ignored.
+     * @param player        the player that the AI will identify as
+     * @param board         the Tic Tac Toe board to search
+     * @param maxPly        the maximum depth
+     * @param deadline      the time to give up, as a System.nanoTime() value
+     * @param nodeLimit     the number of positions to give up after
+     * @return              the score of the board
+     */
+    int search (Board.State player, Board board, double maxPly, long deadline, long nodeLimit) {
+        this.maxPly = maxPly;
+        this.deadline = deadline;
+        this.nodeLimit = nodeLimit;
+        nodes = 0;
+        aborted = false;
+        bestMove = -1;
+        followPrincipalVariation = (board.getHash() == principalVariationRoot);
+        evaluator.prepare(board);
+
+        Tablebase installed = Tablebase.getInstalled();
+        tablebase = (installed != null && installed.covers(board.getWidth(), board.getHeight(), board.getWinLength()))
+                ? installed : null;
+
+        if (ordering == null || !ordering.fits(board)) {
+            ordering = new MoveOrdering(board, heuristics);
+        }
+        ordering.prepare(board);
+
+        int score = alphaBetaPruning(player, board, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+
+        if (!aborted) {
+            storePrincipalVariation(board, maxPly);
+        }
+        return score;
+    }
+
+    /**
+     * @return              the move chosen at the root by the last search
+     */
+    int getBestMove () {
+        return bestMove;
+    }
+
+    /**
+     * @return              true if the last search ran out of time or nodes
+     */
+    boolean isAborted () {
+        return aborted;
+    }
+
+    /**
+     * @return              the number of positions visited by the last search
+     */
+    long getNodes () {
+        return nodes;
+    }
+
+    /**
+     * Set where the following searches count what they do.
+     * @param statistics    the statistics to count into (null to not count anything)
+     */
+    void setStatistics (SearchStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Set where the following searches report the positions they visit, and
+     * which can stop them.
+     * @param progress      the progress to report to (null to not report anything)
+     */
+    void setProgress (SearchProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * @return              the statistics that the searches count into (null if they do not count)
+     */
+    SearchStatistics getStatistics () {
+        return statistics;
+    }
+
+    /**
+     * Remove every position from the transposition table shared by the
+     * searches, so that the next search starts from scratch. Must not be
+     * called while a search is running.
+     */
+    static void clearTable () {
+        table.clear();
+    }
+
+    /**
+     * Mark the start of the search of a new move in the transposition table
+     * shared by the searches, so that the positions stored for earlier moves
+     * are the first to be replaced. Called once per move by whatever drives
+     * the searches, not once per call of search(): the depths of iterative
+     * deepening and the helpers of Lazy SMP all belong to the same move. The
+     * repeated searches of the same position by the ponderer count as one.
+     * @param board         the Tic Tac Toe board that will be searched
+     */
+    static void newSearch (Board board) {
+        table.newSearch(board.getHash());
+    }
+
+    /**
+     * Make the search give up as soon as possible. Can be called from any
+     * thread. Every later search gives up right away as well.
+     */
+    void stop () {
+        stopped.set(true);
+    }
+
+    /**
+     * Check whether the score of a search is a win or a loss that a deeper
+     * search cannot change. The transposition table can hold wins and losses
+     * from beyond the depth of the search, and a deeper search may still find
+     * a quicker win or a slower loss than those.
+     * @param board         the Tic Tac Toe board that was searched
+     * @param score         the score of the search
+     * @param depth         the maximum depth of the search
+     * @return              true if the game ends within the depth of the search
+     */
+    static boolean isDecisive (Board board, int score, int depth) {
+        if (!isWin(score)) {
+            return false;
+        }
+
+        int movesPlayed = Evaluator.WIN + board.getCellCount() + 1 - Math.abs(score);
+        return movesPlayed <= depth;
+    }
 
-        AlphaBetaAdvanced.maxPly = maxPly;
-        alphaBetaPruning(player, board, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+    /**
+     * Check whether a search that finished solved the position: it searched
+     * to the end of the game, or found a win or a loss within its depth.
+     * @param board         the Tic Tac Toe board that was searched
+     * @param score         the score of the search
+     * @param depth         the maximum depth of the search
+     * @return              true if the move and the score of the search are exact
+     */
+    static boolean isExact (Board board, int score, int depth) {
+        return depth >= board.getAvailableMoveCount() || isDecisive(board, score, depth);
+    }
+
+    /**
+     * @param score         a score of the search
+     * @return              true if the score is a win or a loss rather than an evaluation
+     */
+    private static boolean isWin (int score) {
+        return Math.abs(score) > Evaluator.WIN;
     }
 
     /**
@@ -49,35 +420,122 @@ class AlphaBetaAdvanced {
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int alphaBetaPruning (Board.State player, Board board, double alpha, double beta, int currentPly) {
+    private int alphaBetaPruning (Board.State player, Board board, double alpha, double beta, int currentPly) {
+        if (++nodes >= nodeLimit || (nodes % CLOCK_INTERVAL == 0 && shouldStop())) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        if (statistics != null) {
+            statistics.countNode(currentPly);
+
+            if (currentPly == maxPly || board.isGameOver()) {
+                statistics.countLeaf(board);
+            }
+        }
+
         if (currentPly++ == maxPly || board.isGameOver()) {
             return score(player, board, currentPly);
         }
 
+        // The root is always searched because it has to play a move.
+        if (tablebase != null && currentPly > 1 && board.getAvailableMoveCount() <= tablebase.getMaxEmpty()) {
+            int entry = tablebase.probe(board);
+
+            if (entry != 0) {
+                if (statistics != null) {
+                    statistics.countTablebaseHit();
+                }
+                return fromTablebase(player, board, entry, currentPly);
+            }
+        }
+
+        long entry = table.probe(getKey(board));
+        int hashMove = -1;
+
+        if (statistics != null) {
+            statistics.countProbe(entry != TranspositionTable.MISS);
+        }
+
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.move(entry);
+
+            if (hashMove != -1) {
+                hashMove = board.getSymmetry().invert(board.getCanonicalSymmetry(), hashMove);
+            }
+
+            // The root is always searched because it has to play a move.
+            if (currentPly > 1 && TranspositionTable.depth(entry) >= getDepth(board, currentPly)) {
+                int score = fromTable(player, TranspositionTable.score(entry), currentPly);
+                int bound = boundFor(player, TranspositionTable.bound(entry));
+
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
         if (board.getTurn() == player) {
-            return getMax(player, board, alpha, beta, currentPly);
+            return getMax(player, board, alpha, beta, currentPly, hashMove);
         } else {
-            return getMin(player, board, alpha, beta, currentPly);
+            return getMin(player, board, alpha, beta, currentPly, hashMove);
         }
     }
 
     /**
-     * Play the move with the highest score.
+     * Find the move with the highest score.
      * @param player        the player that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @param alpha         the alpha value
      * @param beta          the beta value
      * @param currentPly    the current depth
+     * @param hashMove      the best move stored in the transposition table (-1 if there is none)
      * @return              the score of the board
      */
-    private static int getMax (Board.State player, Board board, double alpha, double beta, int currentPly) {
+    private int getMax (Board.State player, Board board, double alpha, double beta, int currentPly, int hashMove) {
         int indexOfBestMove = -1;
+        double originalAlpha = alpha, originalBeta = beta;
+
+        int[] moves = getMoves(board, currentPly);
+        int count = board.getDistinctMoves(moves);
+        reorder(moves, count, currentPly);
+        ordering.score(board, moves, count, currentPly, getFirstMove(moves, count, currentPly, hashMove));
+
+        for (int i = 0; i < count; i++) {
+
+            // Young Brothers Wait: the first move is searched alone to get a
+            // bound, then the rest of them are searched in parallel.
+            if (i == 1 && shouldSplit(board, count, currentPly)) {
+                ordering.sortRest(moves, count, currentPly, 1);
+                SplitPoint split = new SplitPoint(splitPoint, true, alpha, beta, indexOfBestMove, statistics != null);
+                searchInParallel(player, board, moves, count, currentPly, split);
+
+                if (aborted) {
+                    return 0;
+                }
+
+                alpha = split.alpha;
+                indexOfBestMove = split.bestMove;
+                break;
+            }
+
+            ordering.pickNext(moves, count, currentPly, i);
+            int theMove = moves[i];
 
-        for (Integer theMove : board.getAvailableMoves()) {
+            board.move(theMove);
+            int score = alphaBetaPruning(player, board, alpha, beta, currentPly);
+            board.undo();
 
-            Board modifiedBoard = board.getDeepCopy();
-            modifiedBoard.move(theMove);
-            int score = alphaBetaPruning(player, modifiedBoard, alpha, beta, currentPly);
+            // Only the first move of a node can be on the principal variation.
+            followPrincipalVariation = false;
+
+            if (aborted) {
+                return 0;
+            }
 
             if (score > alpha) {
                 alpha = score;
@@ -85,34 +543,73 @@ class AlphaBetaAdvanced {
             }
 
             if (alpha >= beta) {
+                ordering.cutoff(board, theMove, currentPly, getDepth(board, currentPly));
+
+                if (statistics != null) {
+                    statistics.countCutoff(i);
+                }
                 break;
             }
         }
 
-        if (indexOfBestMove != -1) {
-            board.move(indexOfBestMove);
+        store(player, board, originalAlpha, originalBeta, (int)alpha, currentPly, indexOfBestMove);
+
+        if (currentPly == 1) {
+            bestMove = indexOfBestMove;
         }
         return (int)alpha;
     }
 
     /**
-     * Play the move with the lowest score.
+     * Find the move with the lowest score.
      * @param player        the player that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @param alpha         the alpha value
      * @param beta          the beta value
      * @param currentPly    the current depth
+     * @param hashMove      the best move stored in the transposition table (-1 if there is none)
      * @return              the score of the board
      */
-    private static int getMin (Board.State player, Board board, double alpha, double beta, int currentPly) {
+    private int getMin (Board.State player, Board board, double alpha, double beta, int currentPly, int hashMove) {
         int indexOfBestMove = -1;
+        double originalAlpha = alpha, originalBeta = beta;
+
+        int[] moves = getMoves(board, currentPly);
+        int count = board.getDistinctMoves(moves);
+        reorder(moves, count, currentPly);
+        ordering.score(board, moves, count, currentPly, getFirstMove(moves, count, currentPly, hashMove));
+
+        for (int i = 0; i < count; i++) {
+
+            // Young Brothers Wait: the first move is searched alone to get a
+            // bound, then the rest of them are searched in parallel.
+            if (i == 1 && shouldSplit(board, count, currentPly)) {
+                ordering.sortRest(moves, count, currentPly, 1);
+                SplitPoint split = new SplitPoint(splitPoint, false, alpha, beta, indexOfBestMove, statistics != null);
+                searchInParallel(player, board, moves, count, currentPly, split);
+
+                if (aborted) {
+                    return 0;
+                }
+
+                beta = split.beta;
+                indexOfBestMove = split.bestMove;
+                break;
+            }
 
-        for (Integer theMove : board.getAvailableMoves()) {
+            ordering.pickNext(moves, count, currentPly, i);
+            int theMove = moves[i];
 
-            Board modifiedBoard = board.getDeepCopy();
-            modifiedBoard.move(theMove);
+            board.move(theMove);
+            int score = alphaBetaPruning(player, board, alpha, beta, currentPly);
+            board.undo();
 
-            int score = alphaBetaPruning(player, modifiedBoard, alpha, beta, currentPly);
+            // Only the first move of a node can be on the principal variation.
+            followPrincipalVariation = false;
+
+            if (aborted) {
+                return 0;
+            }
 
             if (score < beta) {
                 beta = score;
@@ -120,24 +617,341 @@ class AlphaBetaAdvanced {
             }
 
             if (alpha >= beta) {
+                ordering.cutoff(board, theMove, currentPly, getDepth(board, currentPly));
+
+                if (statistics != null) {
+                    statistics.countCutoff(i);
+                }
                 break;
             }
         }
 
-        if (indexOfBestMove != -1) {
-            board.move(indexOfBestMove);
+        store(player, board, originalAlpha, originalBeta, (int)beta, currentPly, indexOfBestMove);
+
+        if (currentPly == 1) {
+            bestMove = indexOfBestMove;
         }
         return (int)beta;
     }
 
     /**
-     * Get the score of the board. Takes depth into account.
+     * Check whether the search should give up: it was stopped, the deadline
+     * has passed, or a sibling already caused a cutoff at a split point above
+     * this search. Called once every CLOCK_INTERVAL positions, which are
+     * counted into the progress.
+     * @return              true if the search should stop
+     */
+    private boolean shouldStop () {
+        if (progress != null) {
+            progress.addNodes(CLOCK_INTERVAL);
+        }
+        return isStopped() || (splitPoint != null && splitPoint.isCancelled());
+    }
+
+    /**
+     * @return              true if the search was stopped or the deadline has passed
+     */
+    private boolean isStopped () {
+        return stopped.get() || (progress != null && progress.isStopped()) || System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Get the buffer for the moves available at a depth.
+     * @param board         the Tic Tac Toe board to play on
+     * @param currentPly    the current depth
+     * @return              an array large enough for every available move
+     */
+    private int[] getMoves (Board board, int currentPly) {
+        if (currentPly >= moves.length) {
+            moves = Arrays.copyOf(moves, currentPly + board.getAvailableMoveCount() + 1);
+        }
+        if (moves[currentPly] == null || moves[currentPly].length < board.getAvailableMoveCount()) {
+            moves[currentPly] = new int[board.getAvailableMoveCount()];
+        }
+        return moves[currentPly];
+    }
+
+    /**
+     * Check whether the siblings of a position are worth searching in parallel.
+     * @param board         the Tic Tac Toe board to play on
+     * @param count         the number of moves at the position
+     * @param currentPly    the current depth
+     * @return              true if the moves after the first should be handed out
+     */
+    private boolean shouldSplit (Board board, int count, int currentPly) {
+        return pool != null && count > 2 && getDepth(board, currentPly) >= MIN_SPLIT_DEPTH;
+    }
+
+    /**
+     * Search every move but the first one in parallel. Each move is searched
+     * on its own copy of the board, by its own search that shares the
+     * transposition table. The result is collected in the split point.
+     * @param player        the player that the AI will identify as
+     * @param board         the Tic Tac Toe board to play on
+     * @param moves         the moves of the position, the first of which is already searched
+     * @param count         the number of moves
+     * @param currentPly    the current depth
+     * @param split         the split point, holding the bound set by the first move
+     */
+    private void searchInParallel (Board.State player, Board board, int[] moves, int count, int currentPly, SplitPoint split) {
+        List<Sibling> siblings = new ArrayList<>(count - 1);
+
+        for (int i = 1; i < count; i++) {
+            Board child = board.getDeepCopy();
+            child.move(moves[i]);
+            siblings.add(new Sibling(this, player, child, moves[i], currentPly, split));
+        }
+
+        ForkJoinTask.invokeAll(siblings);
+        nodes += split.nodes;
+
+        if (statistics != null) {
+            statistics.add(split.statistics);
+
+            // One of the moves after the first caused the cutoff.
+            if (split.cutoff) {
+                statistics.countCutoff(1);
+            }
+        }
+
+        // A sibling that gave up because of the cutoff at this split point
+        // does not matter; one that gave up for any other reason does.
+        if (split.aborted && !split.cutoff) {
+            aborted = true;
+        }
+    }
+
+    /**
+     * Give a helper thread its own move order by rotating the list of moves
+     * before they are ordered, which changes the order of the moves that the
+     * move ordering scores the same. The rotation depends on the helper and
+     * the depth, and the moves of the main thread are left as they are.
+     * @param moves         the available moves
+     * @param count         the number of available moves
+     * @param currentPly    the current depth
+     */
+    private void reorder (int[] moves, int count, int currentPly) {
+        if (helper == 0 || count < 2) {
+            return;
+        }
+
+        int shift = (helper + currentPly) % count;
+        reverse(moves, 0, shift);
+        reverse(moves, shift, count);
+        reverse(moves, 0, count);
+    }
+
+    /**
+     * Reverse part of a list of moves.
+     * @param moves         the moves
+     * @param from          the first index to reverse
+     * @param to            one past the last index to reverse
+     */
+    private static void reverse (int[] moves, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int move = moves[i];
+            moves[i] = moves[j];
+            moves[j] = move;
+        }
+    }
+
+    /**
+     * Choose the move to search first: the next move of the principal
+     * variation of the previous search while the search is still following
+     * it, and otherwise the best move from the transposition table.
+     * @param moves         the available moves
+     * @param count         the number of available moves
+     * @param currentPly    the current depth
+     * @param hashMove      the best move stored in the transposition table (-1 if there is none)
+     * @return              the move to search first (-1 if there is none)
+     */
+    private int getFirstMove (int[] moves, int count, int currentPly, int hashMove) {
+        if (!followPrincipalVariation) {
+            return hashMove;
+        }
+
+        if (currentPly <= principalVariationLength) {
+            int move = principalVariation[currentPly - 1];
+
+            for (int i = 0; i < count; i++) {
+                if (moves[i] == move) {
+                    return move;
+                }
+            }
+        }
+
+        followPrincipalVariation = false;
+        return hashMove;
+    }
+
+    /**
+     * Remember the best line of play by following the best moves stored in the
+     * transposition table from the root.
+     * @param board         the Tic Tac Toe board that was searched
+     * @param maxPly        the maximum depth of the search
+     */
+    private void storePrincipalVariation (Board board, double maxPly) {
+        int length = 0;
+        int[] line = new int[board.getAvailableMoveCount()];
+
+        while (length < maxPly && !board.isGameOver()) {
+            int move = bestMove;
+
+            if (length > 0) {
+                long entry = table.probe(getKey(board));
+
+                if (entry == TranspositionTable.MISS || TranspositionTable.move(entry) == -1) {
+                    break;
+                }
+                move = board.getSymmetry().invert(board.getCanonicalSymmetry(), TranspositionTable.move(entry));
+            }
+
+            if (move == -1 || board.getState(move) != Board.State.Blank) {
+                break;
+            }
+
+            board.move(move);
+            line[length++] = move;
+        }
+
+        for (int i = 0; i < length; i++) {
+            board.undo();
+        }
+
+        principalVariation = line;
+        principalVariationLength = length;
+        principalVariationRoot = board.getHash();
+    }
+
+    /**
+     * Get how many plies are left to search below the current position.
+     * @param board         the Tic Tac Toe board to play on
+     * @param currentPly    the current depth
+     * @return              the remaining depth (the number of empty cells if the search is not cut off)
+     */
+    private int getDepth (Board board, int currentPly) {
+        return (int)Math.min(maxPly - currentPly, board.getAvailableMoveCount());
+    }
+
+    /**
+     * Get the key of the current position in the transposition table.
+     * @param board         the Tic Tac Toe board to play on
+     * @return              the canonical hash of the board, mixed with the salt of the evaluator
+     */
+    private long getKey (Board board) {
+        return board.getCanonicalHash() ^ salt;
+    }
+
+    /**
+     * Store the score of the current position in the transposition table.
+     * @param player        the player that the AI will identify as
+     * @param board         the Tic Tac Toe board to play on
+     * @param alpha         the alpha value the position was searched with
+     * @param beta          the beta value the position was searched with
+     * @param score         the score of the board
+     * @param currentPly    the current depth
+     * @param bestMove      the best move found (-1 if every move failed low)
+     */
+    private void store (Board.State player, Board board, double alpha, double beta, int score, int currentPly, int bestMove) {
+        int bound;
+
+        if (score <= alpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (score >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+
+        // Symmetric positions share an entry, so the move is stored in the
+        // frame of the canonical position.
+        if (bestMove != -1) {
+            bestMove = board.getSymmetry().apply(board.getCanonicalSymmetry(), bestMove);
+        }
+
+        table.store(getKey(board), toTable(player, score, currentPly), getDepth(board, currentPly),
+                boundFor(player, bound), bestMove);
+    }
+
+    /**
+     * Convert a bound between the point of view of the player and the point of
+     * view of X. A lower bound for O is an upper bound for X, and vice versa.
+     * @param player        the player that the AI will identify as
+     * @param bound         EXACT, LOWER or UPPER
+     * @return              the converted bound
+     */
+    private static int boundFor (Board.State player, int bound) {
+        if (player == Board.State.X || bound == TranspositionTable.EXACT) {
+            return bound;
+        }
+        return (bound == TranspositionTable.LOWER) ? TranspositionTable.UPPER : TranspositionTable.LOWER;
+    }
+
+    /**
+     * Convert an entry of the tablebase into a score, as if the game had been
+     * searched to its end.
+     * @param player        the player that the AI will identify as
+     * @param board         the Tic Tac Toe board to play on
+     * @param entry         the entry of the current position
+     * @param currentPly    one more than the number of moves played since the root
+     * @return              the score of the board
+     */
+    private static int fromTablebase (Board.State player, Board board, int entry, int currentPly) {
+        int value = Tablebase.value(entry);
+
+        if (value == PerfectPlay.DRAW) {
+            return 0;
+        }
+
+        int movesPlayed = currentPly - 1 + Tablebase.distance(entry);
+        int win = Evaluator.WIN + board.getCellCount() + 1 - movesPlayed;
+        return ((value == PerfectPlay.WIN) == (board.getTurn() == player)) ? win : -win;
+    }
+
+    /**
+     * Convert a score into the form stored in the transposition table. The
+     * table holds scores from the point of view of X, and wins and losses are
+     * counted from the position itself rather than from the root, so that the
+     * entry is valid no matter which player or which search reads it.
+     * Evaluations are stored as they are.
+     * @param player        the player that the AI will identify as
+     * @param score         the score of the board
+     * @param currentPly    the current depth
+     * @return              the score to store
+     */
+    private static int toTable (Board.State player, int score, int currentPly) {
+        if (isWin(score)) {
+            score += (score > 0) ? currentPly : -currentPly;
+        }
+        return (player == Board.State.X) ? score : -score;
+    }
+
+    /**
+     * Convert a score from the transposition table back into a score for the
+     * current search.
+     * @param player        the player that the AI will identify as
+     * @param score         the stored score
+     * @param currentPly    the current depth
+     * @return              the score of the board
+     */
+    private static int fromTable (Board.State player, int score, int currentPly) {
+        score = (player == Board.State.X) ? score : -score;
+
+        if (isWin(score)) {
+            score -= (score > 0) ? currentPly : -currentPly;
+        }
+        return score;
+    }
+
+    /**
+     * Get the score of the board. Takes depth into account. A position where
+     * the game is not over is scored by the evaluator.
      * @param player        the play that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int score (Board.State player, Board board, int currentPly) {
+    private int score (Board.State player, Board board, int currentPly) {
 
         if (player == Board.State.Blank) {
             throw new IllegalArgumentException("Player must be X or O.");
@@ -145,13 +959,172 @@ class AlphaBetaAdvanced {
 
         Board.State opponent = (player == Board.State.X) ? Board.State.O : Board.State.X;
 
-        if (board.isGameOver() && board.getWinner() == player) {
-            return 10 - currentPly;
-        } else if (board.isGameOver() && board.getWinner() == opponent) {
-            return -10 + currentPly;
+        // The current ply is one more than the number of moves played since the
+        // root. Counting the moves instead keeps a win on the last cell of an
+        // empty board above a draw, which the transposition table relies on.
+        // A win is worth WIN plus one more than the number of cells, less the
+        // number of moves it took.
+        int win = Evaluator.WIN + board.getCellCount() + 1;
+        int movesPlayed = currentPly - 1;
+
+        if (!board.isGameOver()) {
+            return evaluator.evaluate(board, player);
+        } else if (board.getWinner() == player) {
+            return win - movesPlayed;
+        } else if (board.getWinner() == opponent) {
+            return -win + movesPlayed;
         } else {
             return 0;
         }
     }
 
+    /**
+     * A position whose moves are being searched in parallel. Holds the bounds
+     * and best move found so far, which every sibling search starts from and
+     * reports back to.
+     */
+    private static class SplitPoint {
+
+        private final SplitPoint parent;
+        private final boolean maximizing;
+
+        private double alpha;
+        private double beta;
+        private int bestMove;
+        private long nodes;
+        private boolean aborted;
+
+        /**
+         * What the sibling searches counted (null if nothing is counted).
+         */
+        private final SearchStatistics statistics;
+
+        /**
+         * Set once alpha meets beta. The remaining siblings, and every split
+         * point below them, give up when they see it.
+         */
+        private volatile boolean cutoff;
+
+        /**
+         * Construct a split point.
+         * @param parent        the split point above this one (null if there is none)
+         * @param maximizing    true if the player to move is the AI
+         * @param alpha         the alpha value after searching the first move
+         * @param beta          the beta value after searching the first move
+         * @param bestMove      the best move after searching the first move
+         * @param counting      true if the sibling searches count what they do
+         */
+        private SplitPoint (SplitPoint parent, boolean maximizing, double alpha, double beta, int bestMove,
+                            boolean counting) {
+            this.parent = parent;
+            this.maximizing = maximizing;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.bestMove = bestMove;
+            this.statistics = counting ? new SearchStatistics() : null;
+        }
+
+        /**
+         * Report the result of searching a sibling.
+         * @param move          the move that was searched
+         * @param score         the score of the move
+         * @param nodes         the number of positions the search visited
+         * @param statistics    what the search counted (null if nothing was counted)
+         * @param aborted       true if the search gave up and the score must be ignored
+         */
+        private synchronized void report (int move, int score, long nodes, SearchStatistics statistics,
+                                          boolean aborted) {
+            this.nodes += nodes;
+
+            if (statistics != null) {
+                this.statistics.add(statistics);
+            }
+
+            if (aborted) {
+                this.aborted = true;
+                return;
+            }
+
+            if (maximizing && score > alpha) {
+                alpha = score;
+                bestMove = move;
+            } else if (!maximizing && score < beta) {
+                beta = score;
+                bestMove = move;
+            }
+
+            if (alpha >= beta) {
+                cutoff = true;
+            }
+        }
+
+        /**
+         * @return              true if this split point or one above it had a cutoff
+         */
+        private boolean isCancelled () {
+            for (SplitPoint split = this; split != null; split = split.parent) {
+                if (split.cutoff) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The search of one move at a split point.
+     */
+    private static class Sibling extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AlphaBetaAdvanced parent;
+        private final Board.State player;
+        private final Board board;
+        private final int move;
+        private final int currentPly;
+        private final SplitPoint split;
+
+        /**
+         * Construct the search of a move.
+         * @param parent        the search that owns the split point
+         * @param player        the player that the AI will identify as
+         * @param board         a copy of the board with the move played
+         * @param move          the move
+         * @param currentPly    the depth of the split point
+         * @param split         the split point
+         */
+        private Sibling (AlphaBetaAdvanced parent, Board.State player, Board board, int move, int currentPly, SplitPoint split) {
+            this.parent = parent;
+            this.player = player;
+            this.board = board;
+            this.move = move;
+            this.currentPly = currentPly;
+            this.split = split;
+        }
+
+        @Override
+        protected void compute () {
+
+            // A search that starts after the stop would only notice it
+            // CLOCK_INTERVAL positions later, after splitting again.
+            if (split.isCancelled() || parent.isStopped()) {
+                split.report(move, 0, 0, null, true);
+                return;
+            }
+
+            double alpha, beta;
+
+            // Start from the bounds found by the siblings that already finished.
+            synchronized (split) {
+                alpha = split.alpha;
+                beta = split.beta;
+            }
+
+            AlphaBetaAdvanced search = new AlphaBetaAdvanced(parent, split);
+            int score = search.alphaBetaPruning(player, board, alpha, beta, currentPly);
+            split.report(move, score, search.nodes, search.statistics, search.aborted);
+        }
+    }
+
 }
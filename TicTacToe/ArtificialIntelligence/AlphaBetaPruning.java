@@ -2,31 +2,77 @@ package ArtificialIntelligence;
 
 import TicTacToe.Board;
 
+import java.util.EnumSet;
+
 /**
  * Uses the Alpha-Beta Pruning algorithm to play a move in a game of Tic Tac Toe.
  */
 class AlphaBetaPruning {
 
-    private static double maxPly;
+    private final Evaluator evaluator;
+
+    private double maxPly;
+
+    /**
+     * The moves available at each depth of the search. Allocated once per
+     * search so that the recursion does not allocate.
+     */
+    private int[][] moves;
+
+    /**
+     * The order to search the moves in. There is no transposition table, so
+     * the moves are ordered by the killer moves, the history heuristic and
+     * the static priors.
+     */
+    private MoveOrdering ordering;
+
+    private long nodes;
+    private int bestMove;
 
     /**
-     * AlphaBetaPruning cannot be instantiated.
+     * Where the search counts what it does (null if nothing is counted).
      */
-    private AlphaBetaPruning () {}
+    private SearchStatistics statistics;
+
+    /**
+     * Construct a search that scores the positions at the maximum depth with
+     * the given evaluator.
+     * @param evaluator     the evaluator of the positions at the maximum depth
+     */
+    AlphaBetaPruning (Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
 
     /**
      * Execute the algorithm.
-     * @param player        the player that the AI will identify as
-     * @param board         the Tic Tac Toe board to play on
+     * @param board         the Tic Tac Toe board to search
      * @param maxPly        the maximum depth
+     * @param statistics    where to count what the search does (null to not count it)
+     * @return              the best move for the player to move
      */
-    static void run (Board.State player, Board board, double maxPly) {
+    SearchResult run (Board board, double maxPly, SearchStatistics statistics) {
         if (maxPly < 1) {
             throw new IllegalArgumentException("Maximum depth must be greater than 0.");
         }
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
 
-        AlphaBetaPruning.maxPly = maxPly;
-        alphaBetaPruning(player, board, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+        this.maxPly = maxPly;
+        this.moves = new int[board.getAvailableMoveCount() + 1][board.getAvailableMoveCount()];
+        this.statistics = statistics;
+        nodes = 0;
+        evaluator.prepare(board);
+
+        if (ordering == null || !ordering.fits(board)) {
+            ordering = new MoveOrdering(board, EnumSet.of(MoveOrdering.Heuristic.PRIORS,
+                    MoveOrdering.Heuristic.KILLER_MOVES, MoveOrdering.Heuristic.HISTORY));
+        }
+        ordering.prepare(board);
+
+        int score = alphaBetaPruning(board.getTurn(), board, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+        int depth = (int)Math.min(maxPly, board.getAvailableMoveCount());
+        return new SearchResult(bestMove, score, depth, nodes);
     }
 
     /**
@@ -38,7 +84,17 @@ class AlphaBetaPruning {
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int alphaBetaPruning (Board.State player, Board board, double alpha, double beta, int currentPly) {
+    private int alphaBetaPruning (Board.State player, Board board, double alpha, double beta, int currentPly) {
+        nodes++;
+
+        if (statistics != null) {
+            statistics.countNode(currentPly);
+
+            if (currentPly == maxPly || board.isGameOver()) {
+                statistics.countLeaf(board);
+            }
+        }
+
         if (currentPly++ == maxPly || board.isGameOver()) {
             return score(player, board);
         }
@@ -51,7 +107,7 @@ class AlphaBetaPruning {
     }
 
     /**
-     * Play the move with the highest score.
+     * Find the move with the highest score.
      * @param player        the player that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @param alpha         the alpha value
@@ -59,14 +115,20 @@ class AlphaBetaPruning {
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int getMax (Board.State player, Board board, double alpha, double beta, int currentPly) {
+    private int getMax (Board.State player, Board board, double alpha, double beta, int currentPly) {
         int indexOfBestMove = -1;
 
-        for (Integer theMove : board.getAvailableMoves()) {
+        int[] moves = this.moves[currentPly];
+        int count = board.getDistinctMoves(moves);
+        ordering.score(board, moves, count, currentPly, -1);
 
-            Board modifiedBoard = board.getDeepCopy();
-            modifiedBoard.move(theMove);
-            int score = alphaBetaPruning(player, modifiedBoard, alpha, beta, currentPly);
+        for (int i = 0; i < count; i++) {
+            ordering.pickNext(moves, count, currentPly, i);
+            int theMove = moves[i];
+
+            board.move(theMove);
+            int score = alphaBetaPruning(player, board, alpha, beta, currentPly);
+            board.undo();
 
             if (score > alpha) {
                 alpha = score;
@@ -75,18 +137,23 @@ class AlphaBetaPruning {
 
             // Pruning.
             if (alpha >= beta) {
+                ordering.cutoff(board, theMove, currentPly, (int)Math.min(maxPly - currentPly, count - 1));
+
+                if (statistics != null) {
+                    statistics.countCutoff(i);
+                }
                 break;
             }
         }
 
-        if (indexOfBestMove != -1) {
-            board.move(indexOfBestMove);
+        if (currentPly == 1 && indexOfBestMove != -1) {
+            bestMove = indexOfBestMove;
         }
         return (int)alpha;
     }
 
     /**
-     * Play the move with the lowest score.
+     * Find the move with the lowest score.
      * @param player        the player that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @param alpha         the alpha value
@@ -94,15 +161,20 @@ class AlphaBetaPruning {
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int getMin (Board.State player, Board board, double alpha, double beta, int currentPly) {
+    private int getMin (Board.State player, Board board, double alpha, double beta, int currentPly) {
         int indexOfBestMove = -1;
 
-        for (Integer theMove : board.getAvailableMoves()) {
+        int[] moves = this.moves[currentPly];
+        int count = board.getDistinctMoves(moves);
+        ordering.score(board, moves, count, currentPly, -1);
 
-            Board modifiedBoard = board.getDeepCopy();
-            modifiedBoard.move(theMove);
+        for (int i = 0; i < count; i++) {
+            ordering.pickNext(moves, count, currentPly, i);
+            int theMove = moves[i];
 
-            int score = alphaBetaPruning(player, modifiedBoard, alpha, beta, currentPly);
+            board.move(theMove);
+            int score = alphaBetaPruning(player, board, alpha, beta, currentPly);
+            board.undo();
 
             if (score < beta) {
                 beta = score;
@@ -111,33 +183,41 @@ class AlphaBetaPruning {
 
             // Pruning.
             if (alpha >= beta) {
+                ordering.cutoff(board, theMove, currentPly, (int)Math.min(maxPly - currentPly, count - 1));
+
+                if (statistics != null) {
+                    statistics.countCutoff(i);
+                }
                 break;
             }
         }
 
-        if (indexOfBestMove != -1) {
-            board.move(indexOfBestMove);
+        if (currentPly == 1 && indexOfBestMove != -1) {
+            bestMove = indexOfBestMove;
         }
         return (int)beta;
     }
 
     /**
-     * Get the score of the board.
+     * Get the score of the board. A position where the game is not over is
+     * scored by the evaluator.
      * @param player        the play that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @return              the score of the board
      */
-    private static int score (Board.State player, Board board) {
+    private int score (Board.State player, Board board) {
         if (player == Board.State.Blank) {
             throw new IllegalArgumentException("Player must be X or O.");
         }
 
         Board.State opponent = (player == Board.State.X) ? Board.State.O : Board.State.X;
 
-        if (board.isGameOver() && board.getWinner() == player) {
-            return 10;
-        } else if (board.isGameOver() && board.getWinner() == opponent) {
-            return -10;
+        if (!board.isGameOver()) {
+            return evaluator.evaluate(board, player);
+        } else if (board.getWinner() == player) {
+            return Evaluator.WIN;
+        } else if (board.getWinner() == opponent) {
+            return -Evaluator.WIN;
         } else {
             return 0;
         }
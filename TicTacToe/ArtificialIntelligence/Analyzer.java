@@ -0,0 +1,446 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Analyzes a stream of positions without a user interface, for going through
+ * large archives of recorded games.
+ *
+ * The positions are read in batches and every batch is analyzed on a pool of
+ * threads, each with its own board and engine. At most a few batches per
+ * thread are read ahead of the one being written, so the memory used does
+ * not depend on the size of the input, and the results are written in the
+ * same order as the positions were read.
+ *
+ * A position is given as its cells row by row, as X, O and - (spaces are
+ * ignored), one position per line. In the binary format every position takes
+ * a fixed number of bytes holding 2 bits per cell, the first cell in the
+ * lowest bits of the first byte (0 = Blank, 1 = X, 2 = O). The board must
+ * hold as many X as O, or one more, and at most one of the players may have
+ * won.
+ *
+ * For every position one line is written, with tabs between the columns:
+ *
+ *   cells                  the position, as in the input
+ *   value                  win, loss or draw for the player to move, or the score of a search cut off before the end
+ *   plies                  the number of moves until the win or the loss (- for a draw or a score)
+ *   move                   the best move (- if the game is over)
+ *   nodes                  the number of positions visited by the search
+ *   microseconds           the time the search took
+ *
+ * or the position and "invalid" with the reason if it cannot be analyzed. The
+ * value is only the game-theoretic value with an engine that searches to the
+ * end of the game, like play (the default) on boards of up to 16 cells.
+ *
+ * Example (every position in games.txt, on every processor):
+ * java ArtificialIntelligence.Analyzer games.txt > analysis.txt
+ */
+public class Analyzer {
+
+    /**
+     * The number of batches per thread that may be read ahead of the batch
+     * being written.
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final String engine;
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final int cellCount;
+
+    /**
+     * The board and the engine of every thread of the pool.
+     */
+    private final ThreadLocal<Worker> workers;
+
+    /**
+     * The statistics of every worker, added together at the end.
+     */
+    private final List<SearchStatistics> statistics = new ArrayList<>();
+
+    /**
+     * Construct an analyzer.
+     * @param engine        the engine to analyze with (see Engines.named())
+     * @param width         the number of columns
+     * @param height        the number of rows
+     * @param winLength     the number of pieces in a row needed to win
+     */
+    Analyzer (String engine, int width, int height, int winLength) {
+        this.engine = engine;
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.cellCount = width * height;
+        this.workers = ThreadLocal.withInitial(Worker::new);
+
+        // Make the engine once, so that a wrong name fails here.
+        Engines.named(engine);
+    }
+
+    /**
+     * Analyze every position of the input and write the results.
+     * @param input         where to read the positions from
+     * @param output        where to write the results
+     * @param binary        true if the positions are in the binary format
+     * @param threads       the number of threads to analyze on
+     * @param batch         the number of positions analyzed by a thread at a time
+     * @return              the number of positions analyzed
+     * @throws IOException  if reading or writing fails
+     */
+    long run (InputStream input, Writer output, boolean binary, int threads, int batch) throws IOException {
+        if (threads < 1 || batch < 1) {
+            throw new IllegalArgumentException("The number of threads and the batch size must be greater than 0.");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        int maxPending = BATCHES_PER_THREAD * threads;
+        long positions = 0;
+
+        BufferedReader lines = binary ? null
+                : new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        byte[] record = new byte[(cellCount + 3) / 4];
+
+        try {
+            while (true) {
+                List<String> positionsOfBatch = new ArrayList<>(batch);
+
+                while (positionsOfBatch.size() < batch) {
+                    String position = binary ? readRecord(input, record) : lines.readLine();
+
+                    if (position == null) {
+                        break;
+                    }
+                    positionsOfBatch.add(position);
+                }
+
+                if (positionsOfBatch.isEmpty()) {
+                    break;
+                }
+
+                // Write the oldest batch before reading any further ahead.
+                if (pending.size() == maxPending) {
+                    output.write(pending.remove().get());
+                }
+
+                pending.add(executor.submit(() -> analyze(positionsOfBatch)));
+                positions += positionsOfBatch.size();
+            }
+
+            while (!pending.isEmpty()) {
+                output.write(pending.remove().get());
+            }
+
+            output.flush();
+            return positions;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The analysis was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A position could not be analyzed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read a position in the binary format and write it as text.
+     * @param input         where to read the position from
+     * @param record        the bytes of one position
+     * @return              the cells of the position, or null at the end of the input
+     * @throws IOException  if reading fails or the input ends in the middle of a position
+     */
+    private String readRecord (InputStream input, byte[] record) throws IOException {
+        int read = input.readNBytes(record, 0, record.length);
+
+        if (read == 0) {
+            return null;
+        } else if (read < record.length) {
+            throw new IOException("The input ends in the middle of a position.");
+        }
+
+        char[] cells = new char[cellCount];
+
+        for (int i = 0; i < cellCount; i++) {
+            int state = (record[i >>> 2] >>> ((i & 3) * 2)) & 3;
+            cells[i] = (state == 1) ? 'X' : (state == 2) ? 'O' : (state == 0) ? '-' : '?';
+        }
+        return new String(cells);
+    }
+
+    /**
+     * Analyze a batch of positions on the calling thread.
+     * @param positions     the positions, as text
+     * @return              the lines to write
+     */
+    private String analyze (List<String> positions) {
+        Worker worker = workers.get();
+        StringBuilder sb = new StringBuilder(positions.size() * (cellCount + 32));
+
+        for (String position : positions) {
+            worker.analyze(position, sb);
+        }
+        return new String(sb);
+    }
+
+    /**
+     * Get the statistics of every search so far.
+     * @return              the statistics of every thread added together
+     */
+    SearchStatistics getStatistics () {
+        SearchStatistics total = new SearchStatistics();
+
+        synchronized (statistics) {
+            for (SearchStatistics s : statistics) {
+                total.add(s);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The board, the engine and the scratch space of one thread.
+     */
+    private class Worker {
+
+        private final Board board = new Board(width, height, winLength);
+        private final Engine search = Engines.named(engine);
+        private final SearchStatistics workerStatistics = new SearchStatistics();
+        private final int[] xs = new int[cellCount];
+        private final int[] os = new int[cellCount];
+
+        Worker () {
+            synchronized (statistics) {
+                statistics.add(workerStatistics);
+            }
+        }
+
+        /**
+         * Analyze a position and append its line.
+         * @param position      the position, as text
+         * @param sb            where to append the line
+         */
+        private void analyze (String position, StringBuilder sb) {
+            sb.append(position).append('\t');
+
+            String error = setUp(position);
+
+            if (error != null) {
+                sb.append("invalid\t").append(error).append('\n');
+                return;
+            }
+
+            if (board.isGameOver()) {
+                // The player who moved last won, or nobody did.
+                sb.append(board.getWinner() == Board.State.Blank ? "draw\t-" : "loss\t0").append("\t-\t0\t0\n");
+                return;
+            }
+
+            long start = System.nanoTime();
+            SearchResult result = search.search(board, workerStatistics);
+            long microseconds = (System.nanoTime() - start) / 1000;
+            int score = result.getScore();
+
+            if (Math.abs(score) > Evaluator.WIN) {
+                int plies = Evaluator.WIN + cellCount + 1 - Math.abs(score);
+                sb.append(score > 0 ? "win\t" : "loss\t").append(plies);
+            } else if (score == 0) {
+                sb.append("draw\t-");
+            } else {
+                sb.append(score).append("\t-");
+            }
+
+            sb.append('\t').append(result.getMove())
+                    .append('\t').append(result.getNodes())
+                    .append('\t').append(microseconds).append('\n');
+        }
+
+        /**
+         * Play the pieces of a position onto the board. The pieces of the
+         * players are played in turn, so that the board knows whose turn it
+         * is. A position where a player has won can only be reached if the
+         * last piece played completes a line, so every piece of the player who
+         * moved last is tried as the last one until the game does not end
+         * before it.
+         * @param position      the position, as text
+         * @return              why the position cannot be played (null if it was)
+         */
+        private String setUp (String position) {
+            int x = 0, o = 0, index = 0;
+
+            for (int i = 0; i < position.length(); i++) {
+                char c = position.charAt(i);
+
+                if (c == ' ') {
+                    continue;
+                } else if (index == cellCount) {
+                    return "More than " + cellCount + " cells.";
+                } else if (c == 'X' || c == 'x') {
+                    xs[x++] = index;
+                } else if (c == 'O' || c == 'o') {
+                    os[o++] = index;
+                } else if (c != '-') {
+                    return "Not a cell: " + c;
+                }
+                index++;
+            }
+
+            if (index != cellCount) {
+                return "Fewer than " + cellCount + " cells.";
+            } else if (x != o && x != o + 1) {
+                return "X must have as many pieces as O or one more.";
+            }
+
+            int[] last = (x > o) ? xs : os;
+            int lastCount = Math.max(x, o);
+
+            // An empty board is reached by playing nothing.
+            if (lastCount == 0) {
+                clear();
+                return null;
+            }
+
+            for (int candidate = lastCount - 1; candidate >= 0; candidate--) {
+                swap(last, candidate, lastCount - 1);
+                boolean played = play(x, o);
+                swap(last, candidate, lastCount - 1);
+
+                if (played) {
+                    return null;
+                }
+            }
+            return "The position cannot be reached.";
+        }
+
+        /**
+         * Play the pieces of both players in turn onto an empty board.
+         * @param x             the number of pieces of X
+         * @param o             the number of pieces of O
+         * @return              true if the game was not over before the last piece
+         */
+        private boolean play (int x, int o) {
+            clear();
+
+            for (int i = 0; i < x + o; i++) {
+                if (board.isGameOver()) {
+                    return false;
+                }
+                board.move((i & 1) == 0 ? xs[i >>> 1] : os[i >>> 1]);
+            }
+            return true;
+        }
+
+        /**
+         * Take back every move on the board.
+         */
+        private void clear () {
+            while (board.getMoveCount() > 0) {
+                board.undo();
+            }
+        }
+
+        /**
+         * Swap two elements of an array.
+         * @param array         the array
+         * @param i             the index of one element
+         * @param j             the index of the other element
+         */
+        private void swap (int[] array, int i, int j) {
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    /**
+     * Takes the file to read the positions from (the standard input if there
+     * is none or it is -), and optionally:
+     * -engine name         the engine to analyze with (see Engines.named(), play by default)
+     * -size w h k          the board (3 3 3 by default)
+     * -binary              read the binary format instead of lines
+     * -threads n           the number of threads (every processor by default)
+     * -batch n             the number of positions analyzed by a thread at a time (256 by default)
+     * -stats               print the statistics of every search added together when done
+     * -tablebase file      look up the positions with few enough empty cells in a tablebase
+     * The results are written to the standard output, and the throughput to
+     * the standard error. Example:
+     * java ArtificialIntelligence.Analyzer -size 4 4 4 -engine alphaBetaAdvanced positions.txt
+     */
+    public static void main (String[] args) throws IOException {
+        String engine = "play";
+        int[] size = {3, 3, 3};
+        boolean binary = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batch = 256;
+        boolean printStatistics = false;
+        String file = "-";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-engine":
+                    engine = args[++i];
+                    break;
+                case "-size":
+                    for (int j = 0; j < size.length; j++) {
+                        size[j] = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "-binary":
+                    binary = true;
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "-stats":
+                    printStatistics = true;
+                    break;
+                case "-tablebase":
+                    Tablebase.load(Paths.get(args[++i])).install();
+                    break;
+                default:
+                    file = args[i];
+            }
+        }
+
+        Analyzer analyzer = new Analyzer(engine, size[0], size[1], size[2]);
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        long start = System.nanoTime();
+        long positions;
+
+        try (InputStream input = new BufferedInputStream(file.equals("-") ? System.in : new FileInputStream(file),
+                1 << 16)) {
+            positions = analyzer.run(input, output, binary, threads, batch);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%,d positions in %.1f s (%,.0f positions/s)%n", positions, seconds, positions / seconds);
+
+        if (printStatistics) {
+            System.err.println(analyzer.getStatistics());
+        }
+    }
+
+}
@@ -0,0 +1,340 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures the speed of the board and of every engine, so that the numbers
+ * in results.txt can be reproduced after every change.
+ *
+ * Each benchmark is run over and over for a while to warm up the JIT, and then
+ * for the same while again to be measured. It reports the operations per
+ * second, the time and the bytes allocated per operation, and for the engines
+ * the number of positions visited per search. The engines are benchmarked at
+ * every depth from 1 ply up to the whole game, on the 3x3 board after the
+ * first move is placed at index 0 and on the empty 4x4 board. A depth is the
+ * last one benchmarked for an engine when a single search takes longer than
+ * the time given to each benchmark.
+ *
+ * A new engine is made, and the history table of the move ordering and the
+ * transposition tables are cleared, before every search, so that every search
+ * starts from scratch like in results.txt and visits the same number of
+ * positions on every run. Clearing the tables also leaves the CPU caches cold,
+ * so the engines with a table are measured like the first search of a game
+ * rather than like one that repeats the last.
+ *
+ * Only the calling thread has its allocation counted and its history
+ * cleared. The allocation on the threads of the parallel search is left out,
+ * and its node counts vary from run to run.
+ *
+ * Example (one second per benchmark, only the 4x4 benchmarks):
+ * java ArtificialIntelligence.Benchmark -time 1000 4x4
+ */
+public class Benchmark {
+
+    /**
+     * The time each benchmark is warmed up for and then measured for, unless
+     * another is passed in.
+     */
+    private static final long DEFAULT_MILLISECONDS = 500;
+
+    /**
+     * The number of times an operation on the board is repeated per
+     * measurement, so that reading the clock does not drown it out.
+     */
+    private static final int BATCH = 1000;
+
+    /**
+     * A time limit long enough that the engines with one stop at their
+     * number of iterations or positions instead.
+     */
+    private static final long NO_TIME_LIMIT = 60 * 60 * 1000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long nanoseconds;
+    private final String filter;
+
+    /**
+     * Where the benchmarks of the board put what they compute, so that the
+     * JIT cannot leave the computation out.
+     */
+    private static volatile long sink;
+
+    /**
+     * Construct a benchmark run.
+     * @param milliseconds  the time each benchmark is warmed up and measured for
+     * @param filter        only run the benchmarks whose names contain it
+     */
+    private Benchmark (long milliseconds, String filter) {
+        this.nanoseconds = milliseconds * 1_000_000;
+        this.filter = filter;
+    }
+
+    /**
+     * Run every benchmark.
+     */
+    private void run () {
+        System.out.printf("%s %s, %d processors%n%n", System.getProperty("java.vm.name"),
+                System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-40s %14s %14s %14s %14s%n", "benchmark", "ops/s", "us/op", "bytes/op", "nodes/op");
+
+        runBoard();
+        runPlayout("playout 3x3", new Board(3, 3, 3));
+        runPlayout("playout 7x7", new Board(7, 7, 5));
+        runPlayout("playout 9x9", new Board(9, 9, 5));
+
+        Board opening = new Board(3, 3, 3);
+        opening.move(0);
+
+        runEngines("3x3", opening);
+        runSearch("3x3 random", opening, Engines::random, false);
+        runSearch("3x3 perfectPlay", opening, Engines::perfectPlay, false);
+        runSearch("3x3 play", opening, Engines::play, false);
+        runSearch("3x3 monteCarloTreeSearch 10000", opening,
+                () -> Engines.monteCarloTreeSearch(NO_TIME_LIMIT, 10_000), false);
+
+        Board empty = new Board(4, 4, 4);
+
+        runEngines("4x4", empty);
+        runSearch("4x4 iterativeDeepening 100000", empty,
+                () -> Engines.iterativeDeepening(NO_TIME_LIMIT, 100_000), true);
+    }
+
+    /**
+     * Benchmark the operations on the board that the searches depend on, on
+     * a 4x4 board with a few pieces on it.
+     */
+    private void runBoard () {
+        Board board = new Board(4, 4, 4);
+
+        for (int move : new int[] {5, 0, 10, 15, 6, 3}) {
+            board.move(move);
+        }
+
+        int[] moves = new int[board.getCellCount()];
+        int count = board.getAvailableMoves(moves);
+
+        run("board move and undo", BATCH, null, () -> {
+            for (int i = 0; i < BATCH; i++) {
+                board.move(moves[i % count]);
+                board.undo();
+            }
+            return 0;
+        });
+
+        run("board getDeepCopy", BATCH, null, () -> {
+            long sum = 0;
+
+            for (int i = 0; i < BATCH; i++) {
+                sum += board.getDeepCopy().getMoveCount();
+            }
+            sink = sum;
+            return 0;
+        });
+
+        run("board getAvailableMoves(int[])", BATCH, null, () -> {
+            long sum = 0;
+
+            for (int i = 0; i < BATCH; i++) {
+                int n = board.getAvailableMoves(moves);
+
+                for (int j = 0; j < n; j++) {
+                    sum += moves[j];
+                }
+            }
+            sink = sum;
+            return 0;
+        });
+
+        run("board getAvailableMoves()", BATCH, null, () -> {
+            long sum = 0;
+
+            for (int i = 0; i < BATCH; i++) {
+                for (int move : board.getAvailableMoves()) {
+                    sum += move;
+                }
+            }
+            sink = sum;
+            return 0;
+        });
+    }
+
+    /**
+     * Benchmark the random games that Monte Carlo Tree Search plays, from the
+     * empty board.
+     * @param name          the name of the benchmark
+     * @param board         the Tic Tac Toe board to play on
+     */
+    private void runPlayout (String name, Board board) {
+        Playout playout = new Playout(board);
+        SplittableRandom random = new SplittableRandom(1);
+
+        run(name, BATCH, null, () -> {
+            long sum = 0;
+
+            for (int i = 0; i < BATCH; i++) {
+                sum += playout.play(board, random).ordinal();
+            }
+            sink = sum;
+            return 0;
+        });
+    }
+
+    /**
+     * Benchmark every engine with a depth limit at every depth.
+     * @param size          the name of the board
+     * @param board         the Tic Tac Toe board to search
+     */
+    private void runEngines (String size, Board board) {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        runPlies(size + " miniMax", board, Engines::miniMax, false);
+        runPlies(size + " alphaBetaPruning", board, Engines::alphaBetaPruning, false);
+        runPlies(size + " alphaBetaAdvanced", board, Engines::alphaBetaAdvanced, true);
+        runPlies(size + " principalVariationSearch", board, Engines::principalVariationSearch, true);
+        runPlies(size + " mtdf", board, Engines::mtdf, true);
+        runPlies(size + " parallelAlphaBeta", board, ply -> Engines.parallelAlphaBeta(processors, ply), true);
+    }
+
+    /**
+     * Benchmark an engine at every depth, until a search takes longer than
+     * the time given to the benchmark.
+     * @param name          the name of the benchmark
+     * @param board         the Tic Tac Toe board to search
+     * @param engines       makes the engine for a depth
+     * @param clearTables   true if the engine has a transposition table
+     */
+    private void runPlies (String name, Board board, IntFunction<Engine> engines, boolean clearTables) {
+        for (int ply = 1; ply <= board.getAvailableMoveCount(); ply++) {
+            int depth = ply;
+            Measurement measurement = runSearch(name + " ply " + ply, board, () -> engines.apply(depth), clearTables);
+
+            if (measurement != null && measurement.nanoseconds / measurement.operations > nanoseconds) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Benchmark the searches of an engine. The engine is made, the history of
+     * the move ordering is cleared, and the transposition tables are cleared
+     * if it has one, before every search and outside of the measurement. Clearing the tables also takes what the
+     * search was using out of the CPU caches, so it is only done when needed.
+     * @param name          the name of the benchmark
+     * @param board         the Tic Tac Toe board to search
+     * @param engines       makes the engine
+     * @param clearTables   true if the engine has a transposition table
+     * @return              the measurement (null if the benchmark was filtered out)
+     */
+    private Measurement runSearch (String name, Board board, Supplier<Engine> engines, boolean clearTables) {
+        Engine[] engine = new Engine[1];
+
+        Runnable setup = () -> {
+            MoveOrdering.clearHistory();
+
+            if (clearTables) {
+                AlphaBetaAdvanced.clearTable();
+                PrincipalVariationSearch.clearTable();
+            }
+            engine[0] = engines.get();
+        };
+
+        return run(name, 1, setup, () -> engine[0].search(board).getNodes());
+    }
+
+    /**
+     * Warm up and measure an operation, and print the result.
+     * @param name          the name of the benchmark
+     * @param batch         the number of operations that each call does
+     * @param setup         what to do before each call, outside of the measurement (null for nothing)
+     * @param operation     the operation, returning the number of positions it visited
+     * @return              the measurement (null if the benchmark was filtered out)
+     */
+    private Measurement run (String name, int batch, Runnable setup, LongSupplier operation) {
+        if (filter != null && !name.contains(filter)) {
+            return null;
+        }
+
+        measure(setup, operation);
+        Measurement measurement = measure(setup, operation);
+        long operations = measurement.operations * batch;
+
+        System.out.printf("%-40s %,14.0f %,14.3f %,14d %,14d%n", name,
+                operations * 1e9 / measurement.nanoseconds,
+                measurement.nanoseconds / 1e3 / operations,
+                measurement.bytes / operations,
+                measurement.nodes / operations);
+
+        return measurement;
+    }
+
+    /**
+     * Call an operation over and over for the time given to each benchmark,
+     * and at least once. The time includes the setup, which can take longer
+     * than the operation itself.
+     * @param setup         what to do before each call, outside of the measurement (null for nothing)
+     * @param operation     the operation, returning the number of positions it visited
+     * @return              the totals of every call
+     */
+    private Measurement measure (Runnable setup, LongSupplier operation) {
+        Measurement measurement = new Measurement();
+        long end = System.nanoTime() + nanoseconds;
+
+        while (measurement.operations == 0 || System.nanoTime() - end < 0) {
+            if (setup != null) {
+                setup.run();
+            }
+
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            measurement.nodes += operation.getAsLong();
+            measurement.nanoseconds += System.nanoTime() - start;
+            measurement.bytes += threads.getCurrentThreadAllocatedBytes() - bytes;
+            measurement.operations++;
+        }
+        return measurement;
+    }
+
+    /**
+     * The totals of the calls of an operation.
+     */
+    private static class Measurement {
+        private long operations;
+        private long nanoseconds;
+        private long bytes;
+        private long nodes;
+    }
+
+    /**
+     * Every benchmark is run for half a second unless -time and a number of
+     * milliseconds are passed in. Any other parameter only runs the
+     * benchmarks whose names contain it. Example:
+     * java ArtificialIntelligence.Benchmark -time 1000 alphaBeta
+     */
+    public static void main (String[] args) {
+        long milliseconds = DEFAULT_MILLISECONDS;
+        String filter = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-time") && i + 1 < args.length) {
+                milliseconds = Long.parseLong(args[++i]);
+            } else {
+                filter = args[i];
+            }
+        }
+
+        if (milliseconds < 1) {
+            throw new IllegalArgumentException("The time must be greater than 0.");
+        }
+
+        new Benchmark(milliseconds, filter).run();
+    }
+
+}
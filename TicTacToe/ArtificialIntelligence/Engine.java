@@ -0,0 +1,52 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+/**
+ * An AI that chooses a move in a game of Tic Tac Toe without playing it.
+ *
+ * Every engine keeps its own configuration and scratch state, so any number
+ * of engines can search different games at the same time. An engine may keep
+ * what it learned from one search for the next move of the same game (the
+ * best line of play, the move ordering, the search tree), so a game should
+ * have an engine of its own, and an engine must only be used by one thread at
+ * a time. Engines are made by {@link Engines}.
+ */
+public interface Engine {
+
+    /**
+     * Search the position for the best move. The board is played on during
+     * the search but left as it was.
+     * @param board         the Tic Tac Toe board to search
+     * @return              the move chosen and how it was found
+     */
+    default SearchResult search (Board board) {
+        return search(board, null);
+    }
+
+    /**
+     * Search the position for the best move, and count what the search does.
+     * The board is played on during the search but left as it was.
+     * @param board         the Tic Tac Toe board to search
+     * @param statistics    where to add the counts of the search (null to not count anything)
+     * @return              the move chosen and how it was found
+     */
+    default SearchResult search (Board board, SearchStatistics statistics) {
+        return search(board, statistics, null);
+    }
+
+    /**
+     * Search the position for the best move, count what the search does, and
+     * report how far it has got to another thread, which can make it play the
+     * best move found so far. Only the searches that deepen (iterative
+     * deepening, Monte Carlo Tree Search, and play() on large boards or when
+     * given a progress) report and can be stopped; the others search to the
+     * end. The board is played on during the search but left as it was.
+     * @param board         the Tic Tac Toe board to search
+     * @param statistics    where to add the counts of the search (null to not count anything)
+     * @param progress      where to report the progress of the search (null to not report it)
+     * @return              the move chosen and how it was found
+     */
+    SearchResult search (Board board, SearchStatistics statistics, SearchProgress progress);
+
+}
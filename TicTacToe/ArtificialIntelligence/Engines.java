@@ -0,0 +1,371 @@
+package ArtificialIntelligence;
+
+/**
+ * Makes engines that use the various algorithms to choose moves in Tic Tac
+ * Toe. Every call makes a new engine with its own state, so that concurrent
+ * games can each have their own.
+ */
+public class Engines {
+
+    /**
+     * The time limit used by play() on boards that are too large to search
+     * completely, and by monteCarloTreeSearch() when none is given.
+     */
+    static final long PLAY_MILLISECONDS = 1000;
+
+    /**
+     * Engines cannot be instantiated.
+     */
+    private Engines () {}
+
+    /**
+     * Make an engine that plays random moves.
+     * @return              the engine
+     */
+    public static Engine random () {
+        Random random = new Random();
+        return timed((board, statistics, progress) -> random.run(board));
+    }
+
+    /**
+     * Make an engine that plays random moves, the same ones on every run.
+     * @param seed          the seed of the random moves
+     * @return              the engine
+     */
+    public static Engine random (long seed) {
+        Random random = new Random(seed);
+        return timed((board, statistics, progress) -> random.run(board));
+    }
+
+    /**
+     * Make an engine that uses the MiniMax algorithm.
+     * @return              the engine
+     */
+    public static Engine miniMax () {
+        MiniMax search = new MiniMax(Evaluator.LINES);
+        return timed((board, statistics, progress) -> search.run(board, Double.POSITIVE_INFINITY, statistics));
+    }
+
+    /**
+     * Make an engine that uses the MiniMax algorithm with a depth limit.
+     * @param ply           the maximum depth
+     * @return              the engine
+     */
+    public static Engine miniMax (int ply) {
+        MiniMax search = new MiniMax(Evaluator.LINES);
+        return timed((board, statistics, progress) -> search.run(board, ply, statistics));
+    }
+
+    /**
+     * Make an engine that uses the Alpha-Beta Pruning algorithm.
+     * @return              the engine
+     */
+    public static Engine alphaBetaPruning () {
+        AlphaBetaPruning search = new AlphaBetaPruning(Evaluator.LINES);
+        return timed((board, statistics, progress) -> search.run(board, Double.POSITIVE_INFINITY, statistics));
+    }
+
+    /**
+     * Make an engine that uses the Alpha-Beta Pruning algorithm with a depth
+     * limit.
+     * @param ply           the maximum depth
+     * @return              the engine
+     */
+    public static Engine alphaBetaPruning (int ply) {
+        AlphaBetaPruning search = new AlphaBetaPruning(Evaluator.LINES);
+        return timed((board, statistics, progress) -> search.run(board, ply, statistics));
+    }
+
+    /**
+     * Make an engine that uses the Alpha-Beta Pruning algorithm with depth in
+     * the evaluation function.
+     * @return              the engine
+     */
+    public static Engine alphaBetaAdvanced () {
+        AlphaBetaAdvanced search = new AlphaBetaAdvanced();
+        return timed((board, statistics, progress) -> search.run(board, Double.POSITIVE_INFINITY, statistics));
+    }
+
+    /**
+     * Make an engine that uses the Alpha-Beta Pruning algorithm with depth in
+     * the evaluation function and a depth limit.
+     * @param ply           the maximum depth
+     * @return              the engine
+     */
+    public static Engine alphaBetaAdvanced (int ply) {
+        AlphaBetaAdvanced search = new AlphaBetaAdvanced();
+        return timed((board, statistics, progress) -> search.run(board, ply, statistics));
+    }
+
+    /**
+     * Make an engine that uses Principal Variation Search (NegaScout).
+     * @return              the engine
+     */
+    public static Engine principalVariationSearch () {
+        PrincipalVariationSearch search = new PrincipalVariationSearch();
+        return timed((board, statistics, progress) -> search.run(board, Double.POSITIVE_INFINITY, statistics));
+    }
+
+    /**
+     * Make an engine that uses Principal Variation Search with a depth limit.
+     * @param ply           the maximum depth
+     * @return              the engine
+     */
+    public static Engine principalVariationSearch (int ply) {
+        PrincipalVariationSearch search = new PrincipalVariationSearch();
+        return timed((board, statistics, progress) -> search.run(board, ply, statistics));
+    }
+
+    /**
+     * Make an engine that uses MTD(f).
+     * @return              the engine
+     */
+    public static Engine mtdf () {
+        PrincipalVariationSearch search = new PrincipalVariationSearch();
+        return timed((board, statistics, progress) -> search.runMTDF(board, Double.POSITIVE_INFINITY, statistics));
+    }
+
+    /**
+     * Make an engine that uses MTD(f) with a depth limit.
+     * @param ply           the maximum depth
+     * @return              the engine
+     */
+    public static Engine mtdf (int ply) {
+        PrincipalVariationSearch search = new PrincipalVariationSearch();
+        return timed((board, statistics, progress) -> search.runMTDF(board, ply, statistics));
+    }
+
+    /**
+     * Make an engine that uses the Alpha-Beta Pruning algorithm with depth in
+     * the evaluation function, searching on several threads at once.
+     * @param threads       the number of threads to search with
+     * @return              the engine
+     */
+    public static Engine parallelAlphaBeta (int threads) {
+        ParallelSearch search = new ParallelSearch(threads);
+        return timed((board, statistics, progress) -> search.run(board, Double.POSITIVE_INFINITY, statistics));
+    }
+
+    /**
+     * Make an engine that uses the Alpha-Beta Pruning algorithm with depth in
+     * the evaluation function, searching on several threads at once with a
+     * depth limit.
+     * @param threads       the number of threads to search with
+     * @param ply           the maximum depth
+     * @return              the engine
+     */
+    public static Engine parallelAlphaBeta (int threads, int ply) {
+        ParallelSearch search = new ParallelSearch(threads);
+        return timed((board, statistics, progress) -> search.run(board, ply, statistics));
+    }
+
+    /**
+     * Make an engine that searches deeper and deeper with the Alpha-Beta
+     * Pruning algorithm until the time limit runs out.
+     * @param milliseconds  the time limit
+     * @return              the engine
+     */
+    public static Engine iterativeDeepening (long milliseconds) {
+        return iterativeDeepening(milliseconds, Long.MAX_VALUE);
+    }
+
+    /**
+     * Make an engine that searches deeper and deeper with the Alpha-Beta
+     * Pruning algorithm until the time limit or the node limit runs out.
+     * @param milliseconds  the time limit
+     * @param nodes         the maximum number of positions to visit
+     * @return              the engine
+     */
+    public static Engine iterativeDeepening (long milliseconds, long nodes) {
+        IterativeDeepening search = new IterativeDeepening();
+        return timed((board, statistics, progress) -> search.run(board, milliseconds, nodes, statistics, progress));
+    }
+
+    /**
+     * Make an engine that runs iterative deepening Alpha-Beta searches on
+     * several threads at once (Lazy SMP).
+     * @param milliseconds  the time limit
+     * @param threads       the number of threads to search with
+     * @return              the engine
+     */
+    public static Engine lazySMP (long milliseconds, int threads) {
+        LazySMP search = new LazySMP(threads);
+        return timed((board, statistics, progress) -> search.run(board, milliseconds, statistics));
+    }
+
+    /**
+     * Make an engine that uses Monte Carlo Tree Search with the same time
+     * limit as play(). The engine keeps its tree from one move to the next.
+     * @return              the engine
+     */
+    public static Engine monteCarloTreeSearch () {
+        return monteCarloTreeSearch(PLAY_MILLISECONDS, Long.MAX_VALUE);
+    }
+
+    /**
+     * Make an engine that uses Monte Carlo Tree Search within a time limit
+     * and a number of random games, whichever runs out first. The engine keeps
+     * its tree from one move to the next.
+     * @param milliseconds  the time limit
+     * @param iterations    the maximum number of random games
+     * @return              the engine
+     */
+    public static Engine monteCarloTreeSearch (long milliseconds, long iterations) {
+        return monteCarloTreeSearch(milliseconds, iterations, MonteCarloTreeSearch.MAX_NODES);
+    }
+
+    /**
+     * Make an engine that uses Monte Carlo Tree Search within a time limit
+     * and a number of random games, with a tree that never holds more than a
+     * number of positions (20 bytes each). The engine keeps its tree from one
+     * move to the next.
+     * @param milliseconds  the time limit
+     * @param iterations    the maximum number of random games
+     * @param nodes         the number of positions the tree can hold
+     * @return              the engine
+     */
+    public static Engine monteCarloTreeSearch (long milliseconds, long iterations, int nodes) {
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(nodes);
+        return timed((board, statistics, progress) -> search.run(board, milliseconds, iterations, statistics, progress));
+    }
+
+    /**
+     * Make an engine that looks up the perfect move in a table of every 3x3
+     * position.
+     * @return              the engine
+     */
+    public static Engine perfectPlay () {
+        return timed((board, statistics, progress) -> PerfectPlay.run(board));
+    }
+
+    /**
+     * Make an engine that uses the strongest algorithm that still answers
+     * quickly on the size of the board: the perfect play table on the classic
+     * 3x3 board, a complete Alpha-Beta search on boards of up to 16 cells, and
+     * an iterative deepening Alpha-Beta search with a time limit on larger
+     * boards. When the search is given a progress, the boards of up to 16
+     * cells are searched by deepening without a time limit instead, so that
+     * the search can be stopped.
+     * @return              the engine
+     */
+    public static Engine play () {
+        AlphaBetaAdvanced complete = new AlphaBetaAdvanced();
+        IterativeDeepening deepening = new IterativeDeepening();
+
+        return timed((board, statistics, progress) -> {
+            if (board.getWidth() == 3 && board.getHeight() == 3 && board.getWinLength() == 3) {
+                return PerfectPlay.run(board);
+            } else if (board.getCellCount() <= 16 && progress == null) {
+                return complete.run(board, Double.POSITIVE_INFINITY, statistics);
+            } else if (board.getCellCount() <= 16) {
+                // Deepening to the end finds the same move as the complete
+                // search, and has a move to play whenever it is stopped.
+                return deepening.run(board, Long.MAX_VALUE, Long.MAX_VALUE, statistics, progress);
+            } else {
+                return deepening.run(board, PLAY_MILLISECONDS, Long.MAX_VALUE, statistics, progress);
+            }
+        });
+    }
+
+    /**
+     * Make an engine look up every position in a solution cache before
+     * searching it, and store what it solves there. A position found in the
+     * cache is answered without searching, with a score on the scale of
+     * AlphaBetaAdvanced. Only the exact results of the engine are stored (see
+     * SearchResult.isExact()), so only play(), alphaBetaAdvanced(),
+     * iterativeDeepening(), parallelAlphaBeta() and lazySMP() ever add to the
+     * cache; the other engines only look it up.
+     * @param engine        the engine to search with when the position is not in the cache
+     * @param cache         the cache, which can be shared by any number of engines
+     * @return              the engine that uses the cache
+     */
+    public static Engine cached (Engine engine, SolutionCache cache) {
+        return (board, statistics, progress) -> {
+            SearchResult result = cache.probe(board);
+
+            if (result == null) {
+                result = engine.search(board, statistics, progress);
+                cache.store(board, result);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Make the engine described by a name and an optional number after a
+     * colon. The name is that of one of the methods of Engines, and the number
+     * is the maximum depth for the searches with a depth limit, the time
+     * limit in milliseconds for iterativeDeepening and monteCarloTreeSearch,
+     * or the seed for random.
+     * @param description   the engine, e.g. "alphaBetaAdvanced:4" or "random"
+     * @return              the engine
+     */
+    public static Engine named (String description) {
+        return named(description, MonteCarloTreeSearch.MAX_NODES);
+    }
+
+    /**
+     * Make the engine described by a name and an optional number after a
+     * colon, as named() does, with a tree of at most a number of positions if
+     * it is monteCarloTreeSearch.
+     * @param description   the engine, e.g. "monteCarloTreeSearch:500"
+     * @param treeNodes     the number of positions the tree of Monte Carlo Tree Search can hold
+     * @return              the engine
+     */
+    public static Engine named (String description, int treeNodes) {
+        String[] parts = description.split(":", 2);
+        boolean limited = parts.length == 2;
+        int n;
+
+        try {
+            n = limited ? Integer.parseInt(parts[1]) : 0;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + parts[1]);
+        }
+
+        switch (parts[0]) {
+            case "random":
+                return limited ? random(n) : random();
+            case "perfectPlay":
+                return perfectPlay();
+            case "play":
+                return play();
+            case "miniMax":
+                return limited ? miniMax(n) : miniMax();
+            case "alphaBetaPruning":
+                return limited ? alphaBetaPruning(n) : alphaBetaPruning();
+            case "alphaBetaAdvanced":
+                return limited ? alphaBetaAdvanced(n) : alphaBetaAdvanced();
+            case "principalVariationSearch":
+                return limited ? principalVariationSearch(n) : principalVariationSearch();
+            case "mtdf":
+                return limited ? mtdf(n) : mtdf();
+            case "iterativeDeepening":
+                return iterativeDeepening(limited ? n : PLAY_MILLISECONDS);
+            case "monteCarloTreeSearch":
+                return monteCarloTreeSearch(limited ? n : PLAY_MILLISECONDS, Long.MAX_VALUE, treeNodes);
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + description);
+        }
+    }
+
+    /**
+     * Make an engine also count the time its searches take when it is given
+     * statistics to count into.
+     * @param engine        the engine
+     * @return              the engine that counts the time
+     */
+    private static Engine timed (Engine engine) {
+        return (board, statistics, progress) -> {
+            if (statistics == null) {
+                return engine.search(board, null, progress);
+            }
+
+            long start = System.nanoTime();
+            SearchResult result = engine.search(board, statistics, progress);
+            statistics.addTime(System.nanoTime() - start);
+            return result;
+        };
+    }
+
+}
@@ -0,0 +1,46 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+/**
+ * Scores the positions where a depth limited search is cut off before the end
+ * of the game.
+ *
+ * The searches score a won or lost position beyond WIN, so an evaluation can
+ * never be mistaken for the end of the game. The evaluators are shared by
+ * every search, so they must not keep any state of their own.
+ */
+interface Evaluator {
+
+    /**
+     * Every evaluation is strictly between -WIN and WIN.
+     */
+    int WIN = 1 << 24;
+
+    /**
+     * Scores every position as a draw, as if nothing is known about it.
+     */
+    Evaluator NONE = (board, player) -> 0;
+
+    /**
+     * Scores a position by the lines that each player can still win with.
+     */
+    Evaluator LINES = new LineEvaluator();
+
+    /**
+     * Get the board ready to be evaluated. Called once at the start of every
+     * search, on the board that will be searched.
+     * @param board         the Tic Tac Toe board
+     */
+    default void prepare (Board board) {}
+
+    /**
+     * Score a position where the game is not over.
+     * @param board         the Tic Tac Toe board
+     * @param player        the player to score the position for
+     * @return              the score of the board, higher when it is better
+     *                      for the player
+     */
+    int evaluate (Board board, Board.State player);
+
+}
@@ -0,0 +1,98 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+/**
+ * Plays a move in a game of Tic Tac Toe within a time limit, using the
+ * AlphaBetaAdvanced algorithm with iterative deepening.
+ *
+ * The position is searched to a depth of 1 ply, then 2 ply, and so on, until
+ * the time limit or the node budget runs out. The move from the deepest search
+ * that finished is played. Every search starts with the best line of play (the
+ * principal variation) of the previous one, and finds the rest of the good
+ * moves in the transposition table, so that the deeper searches get most of
+ * their cutoffs early.
+ */
+class IterativeDeepening {
+
+    /**
+     * Longer time limits are cut to this (about 70 years), so that the
+     * deadline does not overflow.
+     */
+    private static final long MAX_MILLISECONDS = Long.MAX_VALUE / 4_000_000;
+
+    /**
+     * Every depth is searched by the same search, which keeps the principal
+     * variation of one depth for the next, and its killer moves from one move
+     * of the game to the next.
+     */
+    private final AlphaBetaAdvanced search = new AlphaBetaAdvanced();
+
+    /**
+     * Construct a search.
+     */
+    IterativeDeepening () {}
+
+    /**
+     * Execute the algorithm.
+     * @param board         the Tic Tac Toe board to search
+     * @param milliseconds  the time limit
+     * @param nodeLimit     the maximum number of positions to visit
+     * @param statistics    where to count what the searches do (null to not count it)
+     * @param progress      where to report every depth that finishes, and that can stop the
+     *                      search (null to not report it)
+     * @return              the move of the deepest search that finished
+     */
+    SearchResult run (Board board, long milliseconds, long nodeLimit, SearchStatistics statistics,
+                      SearchProgress progress) {
+
+        if (milliseconds < 1 || nodeLimit < 1) {
+            throw new IllegalArgumentException("The time limit and the node limit must be greater than 0.");
+        }
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
+
+        long deadline = System.nanoTime() + Math.min(milliseconds, MAX_MILLISECONDS) * 1_000_000;
+        long nodesLeft = nodeLimit;
+        long nodes = 0;
+        int bestMove = -1, bestScore = 0, bestDepth = 0;
+        search.setStatistics(statistics);
+        AlphaBetaAdvanced.newSearch(board);
+
+        for (int depth = 1; depth <= board.getAvailableMoveCount(); depth++) {
+
+            // The first search is tiny and always allowed to finish, so that
+            // there is a move to play no matter how short the time limit is
+            // or how soon the search is stopped.
+            search.setProgress((depth == 1) ? null : progress);
+            int score = (depth == 1)
+                    ? search.search(board.getTurn(), board, depth, Long.MAX_VALUE, Long.MAX_VALUE)
+                    : search.search(board.getTurn(), board, depth, deadline, nodesLeft);
+
+            nodes += search.getNodes();
+
+            if (search.isAborted()) {
+                break;
+            }
+
+            bestMove = search.getBestMove();
+            bestScore = score;
+            bestDepth = depth;
+            nodesLeft -= search.getNodes();
+
+            if (progress != null) {
+                progress.update(depth, bestMove, score);
+            }
+
+            // Stop once the game is won or lost within the depth searched.
+            if (AlphaBetaAdvanced.isDecisive(board, score, depth) || nodesLeft <= 0) {
+                break;
+            }
+        }
+
+        return new SearchResult(bestMove, bestScore, bestDepth, nodes,
+                AlphaBetaAdvanced.isExact(board, bestScore, bestDepth));
+    }
+
+}
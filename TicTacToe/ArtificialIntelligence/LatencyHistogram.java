@@ -0,0 +1,130 @@
+package ArtificialIntelligence;
+
+/**
+ * Counts durations in buckets whose width grows with the duration, so that
+ * any number of them take the same memory and every percentile is within an
+ * eighth of the true value. Used to report how long moves take.
+ *
+ * A histogram is not thread safe. Give every thread one of its own and add
+ * them together, or lock it.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Every power of two is split into 1 << SUB_BITS buckets.
+     */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS) * SUB_BUCKETS + SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    /**
+     * Construct an empty histogram.
+     */
+    public LatencyHistogram () {}
+
+    /**
+     * Count a duration.
+     * @param nanoseconds   the duration
+     */
+    public void record (long nanoseconds) {
+        counts[bucket(Math.max(nanoseconds, 0))]++;
+        total++;
+        max = Math.max(max, nanoseconds);
+    }
+
+    /**
+     * Add the durations counted by another histogram.
+     * @param other         the histogram to add
+     */
+    public void add (LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return              the number of durations counted
+     */
+    public long getCount () {
+        return total;
+    }
+
+    /**
+     * @return              the longest duration counted
+     */
+    public long getMax () {
+        return max;
+    }
+
+    /**
+     * Get a percentile of the durations.
+     * @param percentile    the percentile (from 0 to 100)
+     * @return              the lowest duration of the bucket that holds it
+     */
+    public long getPercentile (double percentile) {
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen >= rank && seen > 0) {
+                return lowest(i);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param value         a duration
+     * @return              the bucket that counts it
+     */
+    private static int bucket (long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param bucket        a bucket
+     * @return              the lowest duration it counts
+     */
+    private static long lowest (int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    @Override
+    public String toString () {
+        return String.format("p50 %s, p90 %s, p99 %s, p99.9 %s, max %s (%,d moves)",
+                format(getPercentile(50)), format(getPercentile(90)), format(getPercentile(99)),
+                format(getPercentile(99.9)), format(max), total);
+    }
+
+    /**
+     * @param nanoseconds   a duration
+     * @return              the duration in the most readable unit
+     */
+    private static String format (long nanoseconds) {
+        if (nanoseconds < 10_000) {
+            return nanoseconds + " ns";
+        } else if (nanoseconds < 10_000_000) {
+            return String.format("%.1f us", nanoseconds / 1e3);
+        }
+        return String.format("%.1f ms", nanoseconds / 1e6);
+    }
+
+}
@@ -0,0 +1,184 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays a move in a game of Tic Tac Toe within a time limit, using iterative
+ * deepening AlphaBetaAdvanced searches on several threads at once (Lazy SMP).
+ *
+ * Every thread searches the same position on its own copy of the board. The
+ * threads do not divide the work between them. They only share the
+ * transposition table, which they read and write without locks, so the
+ * positions one thread has searched are cut off early by the others. To keep
+ * the threads apart, every second helper starts one ply deeper and every helper
+ * searches the moves in its own order. The move from the deepest search that
+ * any thread finished is played.
+ */
+class LazySMP {
+
+    private static final ExecutorService helpers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "LazySMP helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int threads;
+
+    /**
+     * Construct a search.
+     * @param threads       the number of threads to search with
+     */
+    LazySMP (int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Execute the algorithm.
+     * @param board         the Tic Tac Toe board to search
+     * @param milliseconds  the time limit
+     * @param statistics    where to count what the searches do on every thread (null to not count it)
+     * @return              the move of the deepest search that finished on any thread
+     */
+    SearchResult run (Board board, long milliseconds, SearchStatistics statistics) {
+
+        if (milliseconds < 1) {
+            throw new IllegalArgumentException("The time limit must be greater than 0.");
+        }
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
+
+        Board.State player = board.getTurn();
+        long deadline = System.nanoTime() + milliseconds * 1_000_000;
+        Result result = new Result();
+        List<AlphaBetaAdvanced> searches = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        AlphaBetaAdvanced.newSearch(board);
+
+        for (int helper = 1; helper < threads; helper++) {
+            AlphaBetaAdvanced search = new AlphaBetaAdvanced(helper);
+            search.setStatistics((statistics == null) ? null : new SearchStatistics());
+            Board copy = board.getDeepCopy();
+            int firstDepth = 1 + helper % 2;
+
+            searches.add(search);
+            futures.add(helpers.submit(() -> deepen(search, player, copy, firstDepth, deadline, result)));
+        }
+
+        // The main thread searches the board itself and decides when to stop.
+        AlphaBetaAdvanced main = new AlphaBetaAdvanced();
+        main.setStatistics(statistics);
+        deepen(main, player, board, 1, deadline, result);
+
+        for (AlphaBetaAdvanced search : searches) {
+            search.stop();
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A helper search failed.", e.getCause());
+            }
+        }
+
+        // Every helper counted into statistics of its own while it ran.
+        if (statistics != null) {
+            for (AlphaBetaAdvanced search : searches) {
+                statistics.add(search.getStatistics());
+            }
+        }
+
+        return result.toSearchResult(board);
+    }
+
+    /**
+     * Search the position deeper and deeper until the time runs out, the
+     * search is stopped, or the result of the game is known.
+     * @param search        the search to run
+     * @param player        the player that the AI will identify as
+     * @param board         the Tic Tac Toe board to search
+     * @param firstDepth    the depth of the first search
+     * @param deadline      the time to give up, as a System.nanoTime() value
+     * @param result        where to report every search that finished
+     */
+    private static void deepen (AlphaBetaAdvanced search, Board.State player, Board board,
+                                int firstDepth, long deadline, Result result) {
+
+        for (int depth = firstDepth; depth <= board.getAvailableMoveCount(); depth++) {
+
+            // The first search of the main thread is always allowed to finish,
+            // so that there is a move to play no matter how short the time is.
+            int score = (depth == 1)
+                    ? search.search(player, board, depth, Long.MAX_VALUE, Long.MAX_VALUE)
+                    : search.search(player, board, depth, deadline, Long.MAX_VALUE);
+
+            result.count(search.getNodes());
+
+            if (search.isAborted()) {
+                break;
+            }
+
+            result.report(depth, search.getBestMove(), score);
+
+            // Stop once the game is won or lost within the depth searched.
+            if (AlphaBetaAdvanced.isDecisive(board, score, depth)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The move of the deepest search that finished on any thread, and the
+     * number of positions visited by every search.
+     */
+    private static class Result {
+
+        private int depth;
+        private int bestMove = -1;
+        private int score;
+        private long nodes;
+
+        /**
+         * Report a search that finished.
+         * @param depth         the depth of the search
+         * @param bestMove      the move it chose
+         * @param score         the score of the board
+         */
+        private synchronized void report (int depth, int bestMove, int score) {
+            if (depth > this.depth) {
+                this.depth = depth;
+                this.bestMove = bestMove;
+                this.score = score;
+            }
+        }
+
+        /**
+         * Count the positions visited by a search, whether it finished or not.
+         * @param nodes         the number of positions
+         */
+        private synchronized void count (long nodes) {
+            this.nodes += nodes;
+        }
+
+        /**
+         * @param board         the Tic Tac Toe board that was searched
+         * @return              the move of the deepest search and the positions visited by all of them
+         */
+        private synchronized SearchResult toSearchResult (Board board) {
+            return new SearchResult(bestMove, score, depth, nodes, AlphaBetaAdvanced.isExact(board, score, depth));
+        }
+    }
+
+}
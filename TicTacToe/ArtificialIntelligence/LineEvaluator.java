@@ -0,0 +1,116 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+/**
+ * Scores a position by the lines of winLength cells that each player can still
+ * win with, using the counts of open lines that the board keeps as moves are
+ * played. Evaluating a position does not depend on the size of the board.
+ *
+ *  - A player to move who has a line missing only one piece (a threat) wins
+ *    with the next move.
+ *  - A player whose opponent has threats on two different cells (a fork)
+ *    can only block one of them, and loses.
+ *  - Otherwise every open line counts for the player it is open to, and each
+ *    piece in a line makes it worth four times as much.
+ *
+ * The first two are scored as FORCED, above every other evaluation but below
+ * every win that the search has actually found.
+ */
+class LineEvaluator implements Evaluator {
+
+    /**
+     * The score of a position that is won or lost by force within two moves.
+     */
+    static final int FORCED = WIN / 2;
+
+    /**
+     * Each piece in an open line multiplies its worth by 1 << PIECE_SHIFT, up
+     * to MAX_PIECES pieces.
+     */
+    private static final int PIECE_SHIFT = 2;
+    private static final int MAX_PIECES = 10;
+
+    /**
+     * Count the open lines of the board as moves are played.
+     * @param board         the Tic Tac Toe board
+     */
+    @Override
+    public void prepare (Board board) {
+        board.trackOpenLines();
+    }
+
+    /**
+     * Score a position where the game is not over.
+     * @param board         the Tic Tac Toe board
+     * @param player        the player to score the position for
+     * @return              the score of the board
+     */
+    @Override
+    public int evaluate (Board board, Board.State player) {
+        Board.State toMove = board.getTurn();
+        Board.State opponent = (toMove == Board.State.X) ? Board.State.O : Board.State.X;
+        int threat = board.getWinLength() - 1;
+        int score;
+
+        if (board.getOpenLineCount(toMove, threat) > 0) {
+            score = FORCED;
+        } else if (board.getOpenLineCount(opponent, threat) > 1 && isFork(board, opponent)) {
+            score = -FORCED;
+        } else {
+            long sum = 0;
+
+            for (int pieces = 1; pieces <= threat; pieces++) {
+                long worth = 1L << (PIECE_SHIFT * Math.min(pieces, MAX_PIECES));
+                sum += worth * (board.getOpenLineCount(toMove, pieces) - board.getOpenLineCount(opponent, pieces));
+            }
+            score = (int) Math.max(-(FORCED - 1), Math.min(FORCED - 1, sum));
+        }
+
+        return (player == toMove) ? score : -score;
+    }
+
+    /**
+     * Check whether a player has threats on at least two different cells.
+     * Only called when the player has two or more threats, which may all be
+     * on the same cell.
+     * @param board         the Tic Tac Toe board
+     * @param player        the player who has the threats
+     * @return              true if no single move can block every threat
+     */
+    private static boolean isFork (Board board, Board.State player) {
+        Board.State opponent = (player == Board.State.X) ? Board.State.O : Board.State.X;
+        int threat = board.getWinLength() - 1;
+        int firstCell = -1;
+
+        for (int line = 0; line < board.getLines().count(); line++) {
+            if (board.getLineCount(player, line) != threat || board.getLineCount(opponent, line) != 0) {
+                continue;
+            }
+
+            int cell = getEmptyCell(board, line);
+
+            if (firstCell == -1) {
+                firstCell = cell;
+            } else if (cell != firstCell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param board         the Tic Tac Toe board
+     * @param line          the number of a line that is not full
+     * @return              the first empty cell of the line
+     */
+    private static int getEmptyCell (Board board, int line) {
+        int i = 0;
+
+        while (board.getState(board.getLines().getCell(line, i)) != Board.State.Blank) {
+            i++;
+        }
+        return board.getLines().getCell(line, i);
+    }
+
+}
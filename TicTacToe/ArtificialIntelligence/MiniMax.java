@@ -7,26 +7,57 @@ import TicTacToe.Board;
  */
 class MiniMax {
 
-    private static double maxPly;
+    private final Evaluator evaluator;
+
+    private double maxPly;
+
+    /**
+     * The moves available at each depth of the search. Allocated once per
+     * search so that the recursion does not allocate.
+     */
+    private int[][] moves;
+
+    private long nodes;
+    private int bestMove;
 
     /**
-     * MiniMax cannot be instantiated.
+     * Where the search counts what it does (null if nothing is counted).
      */
-    private MiniMax() {}
+    private SearchStatistics statistics;
+
+    /**
+     * Construct a search that scores the positions at the maximum depth with
+     * the given evaluator.
+     * @param evaluator     the evaluator of the positions at the maximum depth
+     */
+    MiniMax (Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
 
     /**
      * Execute the algorithm.
-     * @param player        the player that the AI will identify as
-     * @param board         the Tic Tac Toe board to play on
+     * @param board         the Tic Tac Toe board to search
      * @param maxPly        the maximum depth
+     * @param statistics    where to count what the search does (null to not count it)
+     * @return              the best move for the player to move
      */
-    static void run (Board.State player, Board board, double maxPly) {
+    SearchResult run (Board board, double maxPly, SearchStatistics statistics) {
         if (maxPly < 1) {
             throw new IllegalArgumentException("Maximum depth must be greater than 0.");
         }
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
+
+        this.maxPly = maxPly;
+        this.moves = new int[board.getAvailableMoveCount() + 1][board.getAvailableMoveCount()];
+        this.statistics = statistics;
+        nodes = 0;
+        evaluator.prepare(board);
 
-        MiniMax.maxPly = maxPly;
-        miniMax(player, board, 0);
+        int score = miniMax(board.getTurn(), board, 0);
+        int depth = (int)Math.min(maxPly, board.getAvailableMoveCount());
+        return new SearchResult(bestMove, score, depth, nodes);
     }
 
     /**
@@ -36,7 +67,17 @@ class MiniMax {
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int miniMax (Board.State player, Board board, int currentPly) {
+    private int miniMax (Board.State player, Board board, int currentPly) {
+        nodes++;
+
+        if (statistics != null) {
+            statistics.countNode(currentPly);
+
+            if (currentPly == maxPly || board.isGameOver()) {
+                statistics.countLeaf(board);
+            }
+        }
+
         if (currentPly++ == maxPly || board.isGameOver()) {
             return score(player, board);
         }
@@ -50,22 +91,25 @@ class MiniMax {
     }
 
     /**
-     * Play the move with the highest score.
+     * Find the move with the highest score.
      * @param player        the player that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int getMax (Board.State player, Board board, int currentPly) {
+    private int getMax (Board.State player, Board board, int currentPly) {
         double bestScore = Double.NEGATIVE_INFINITY;
         int indexOfBestMove = -1;
 
-        for (Integer theMove : board.getAvailableMoves()) {
+        int[] moves = this.moves[currentPly];
+        int count = board.getDistinctMoves(moves);
 
-            Board modifiedBoard = board.getDeepCopy();
-            modifiedBoard.move(theMove);
+        for (int i = 0; i < count; i++) {
+            int theMove = moves[i];
 
-            int score = miniMax(player, modifiedBoard, currentPly);
+            board.move(theMove);
+            int score = miniMax(player, board, currentPly);
+            board.undo();
 
             if (score >= bestScore) {
                 bestScore = score;
@@ -74,27 +118,32 @@ class MiniMax {
 
         }
 
-        board.move(indexOfBestMove);
+        if (currentPly == 1) {
+            bestMove = indexOfBestMove;
+        }
         return (int)bestScore;
     }
 
     /**
-     * Play the move with the lowest score.
+     * Find the move with the lowest score.
      * @param player        the player that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @param currentPly    the current depth
      * @return              the score of the board
      */
-    private static int getMin (Board.State player, Board board, int currentPly) {
+    private int getMin (Board.State player, Board board, int currentPly) {
         double bestScore = Double.POSITIVE_INFINITY;
         int indexOfBestMove = -1;
 
-        for (Integer theMove : board.getAvailableMoves()) {
+        int[] moves = this.moves[currentPly];
+        int count = board.getDistinctMoves(moves);
 
-            Board modifiedBoard = board.getDeepCopy();
-            modifiedBoard.move(theMove);
+        for (int i = 0; i < count; i++) {
+            int theMove = moves[i];
 
-            int score = miniMax(player, modifiedBoard, currentPly);
+            board.move(theMove);
+            int score = miniMax(player, board, currentPly);
+            board.undo();
 
             if (score <= bestScore) {
                 bestScore = score;
@@ -103,27 +152,32 @@ class MiniMax {
 
         }
 
-        board.move(indexOfBestMove);
+        if (currentPly == 1) {
+            bestMove = indexOfBestMove;
+        }
         return (int)bestScore;
     }
 
     /**
-     * Get the score of the board.
+     * Get the score of the board. A position where the game is not over is
+     * scored by the evaluator.
      * @param player        the play that the AI will identify as
      * @param board         the Tic Tac Toe board to play on
      * @return              the score of the board
      */
-    private static int score (Board.State player, Board board) {
+    private int score (Board.State player, Board board) {
         if (player == Board.State.Blank) {
             throw new IllegalArgumentException("Player must be X or O.");
         }
 
         Board.State opponent = (player == Board.State.X) ? Board.State.O : Board.State.X;
 
-        if (board.isGameOver() && board.getWinner() == player) {
-            return 10;
-        } else if (board.isGameOver() && board.getWinner() == opponent) {
-            return -10;
+        if (!board.isGameOver()) {
+            return evaluator.evaluate(board, player);
+        } else if (board.getWinner() == player) {
+            return Evaluator.WIN;
+        } else if (board.getWinner() == opponent) {
+            return -Evaluator.WIN;
         } else {
             return 0;
         }
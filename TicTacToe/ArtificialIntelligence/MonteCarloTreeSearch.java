@@ -0,0 +1,503 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Uses Monte Carlo Tree Search (UCT) to play a move in a game of Tic Tac Toe.
+ *
+ * Instead of searching every move to the end of the game, the search plays
+ * thousands of random games (playouts) and grows a tree towards the moves that
+ * win the most of them. Each iteration walks down the tree, choosing the child
+ * with the best balance of a high win rate and few visits (the UCB1 formula),
+ * adds the children of the position it ends up in once it has been visited a
+ * few times, plays a random game from there, and counts the result in every
+ * position on the way back up. The move that was visited the most is played.
+ *
+ * This gives reasonable play on boards far too large for Alpha-Beta Pruning,
+ * within whatever time or number of iterations it is given.
+ *
+ * The tree is stored in arrays rather than as an object per position: the
+ * children of a position take up consecutive slots of the arrays. The tree is
+ * kept after a move is played. When the next search starts from a position
+ * that is one or two moves further down the same game, the part of the tree
+ * below that position is reused. When the arrays fill up, the tree stops
+ * growing, and it is thrown away at the start of the next search.
+ *
+ * The score of a search is the share of the random games through the chosen
+ * move that were won, from -1000 (all lost) to 1000 (all won).
+ */
+class MonteCarloTreeSearch {
+
+    /**
+     * The number of positions the tree can hold by default, and the number
+     * it starts out with room for. The arrays grow as the tree does, so a
+     * search only takes up the memory its tree needs.
+     */
+    static final int MAX_NODES = 1 << 20;
+    private static final int INITIAL_NODES = 1 << 12;
+
+    /**
+     * The weight of the exploration term of UCB1. Higher values try the less
+     * visited moves more often.
+     */
+    private static final double EXPLORATION = 1.4;
+
+    /**
+     * The number of visits a position needs before its children are added to
+     * the tree. Positions visited fewer times are only played out.
+     */
+    private static final int EXPANSION_VISITS = 4;
+
+    /**
+     * The clock is only read once every CLOCK_INTERVAL iterations.
+     */
+    private static final int CLOCK_INTERVAL = 64;
+
+    private static MonteCarloTreeSearch shared;
+
+    /**
+     * For every position in the tree: the slot of its first child (-1 if its
+     * children have not been added), the number of children, the move that
+     * leads to it, the number of playouts through it, and the number of those
+     * won by the player who made the move (a draw counts as half a win).
+     */
+    private int[] firstChild;
+    private int[] childCount;
+    private int[] move;
+    private int[] visits;
+    private float[] wins;
+    private int size;
+
+    /**
+     * The number of positions the arrays may grow to hold.
+     */
+    private final int capacity;
+
+    /**
+     * The slot of the root, and a copy of the board at the root. The copy is
+     * played on during the search and always returned to the root.
+     */
+    private int root;
+    private Board board;
+
+    /**
+     * Buffers for the path walked down the tree and the empty cells of a
+     * position, so that iterations do not allocate.
+     */
+    private int[] path = new int[0];
+    private int[] empty = new int[0];
+
+    /**
+     * Plays the random games, with moves chosen by the random number
+     * generator of the search.
+     */
+    private Playout playout;
+    private final SplittableRandom random = new SplittableRandom();
+    private long iterations;
+
+    /**
+     * The number of moves from the root to the deepest position walked to
+     * by the last search.
+     */
+    private int maxDepth;
+
+    /**
+     * Where the search counts what it does (null if nothing is counted). Every
+     * iteration counts the positions on its path down the tree, and the
+     * random game or the end of the game it finishes with.
+     */
+    private SearchStatistics statistics;
+
+    /**
+     * Where the search reports its best move once every CLOCK_INTERVAL
+     * iterations, and which can stop it (null if there is none).
+     */
+    private SearchProgress progress;
+
+    /**
+     * Construct a search.
+     * @param capacity      the number of positions the tree can hold
+     */
+    MonteCarloTreeSearch (int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The tree must hold at least 2 positions.");
+        }
+
+        this.capacity = capacity;
+        int length = Math.min(capacity, INITIAL_NODES);
+        firstChild = new int[length];
+        childCount = new int[length];
+        move = new int[length];
+        visits = new int[length];
+        wins = new float[length];
+    }
+
+    /**
+     * Construct a search with a tree of the default size.
+     */
+    MonteCarloTreeSearch () {
+        this(MAX_NODES);
+    }
+
+    /**
+     * Execute the algorithm. The tree is kept for the next call.
+     * @param board         the Tic Tac Toe board to search
+     * @param milliseconds  the time limit
+     * @param iterations    the maximum number of playouts
+     * @param statistics    where to count what the search does (null to not count it)
+     * @param progress      where to report the most visited move, and that can stop the search
+     *                      (null to not report it)
+     * @return              the most visited move
+     */
+    SearchResult run (Board board, long milliseconds, long iterations, SearchStatistics statistics,
+                      SearchProgress progress) {
+        this.statistics = statistics;
+        this.progress = progress;
+        search(board, milliseconds, iterations);
+
+        return new SearchResult(getBestMove(), getScore(), maxDepth, this.iterations);
+    }
+
+    /**
+     * Execute the algorithm with a search that is shared by every caller, so
+     * that the tree is kept from one call to the next without an engine.
+     * Callers take turns.
+     * @param board         the Tic Tac Toe board to search
+     * @param milliseconds  the time limit
+     * @param iterations    the maximum number of playouts
+     * @return              the most visited move
+     */
+    static synchronized SearchResult runShared (Board board, long milliseconds, long iterations) {
+        if (shared == null) {
+            shared = new MonteCarloTreeSearch(MAX_NODES);
+        }
+        return shared.run(board, milliseconds, iterations, null, null);
+    }
+
+    /**
+     * Grow the tree from the position without playing a move. At least one
+     * iteration is always run.
+     * @param board         the Tic Tac Toe board to search
+     * @param milliseconds  the time limit
+     * @param iterations    the maximum number of playouts
+     */
+    void search (Board board, long milliseconds, long iterations) {
+
+        if (milliseconds < 1 || iterations < 1) {
+            throw new IllegalArgumentException("The time limit and the number of iterations must be greater than 0.");
+        }
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
+
+        moveRoot(board);
+
+        long deadline = System.nanoTime() + milliseconds * 1_000_000;
+        this.iterations = 0;
+        maxDepth = 0;
+
+        while (this.iterations < iterations) {
+            if (this.iterations % CLOCK_INTERVAL == 0 && this.iterations > 0 && shouldStop(deadline)) {
+                break;
+            }
+            iterate();
+            this.iterations++;
+        }
+    }
+
+    /**
+     * Check whether the search should stop, once every CLOCK_INTERVAL
+     * iterations, and report its best move so far to the progress.
+     * @param deadline      the time to stop, as a System.nanoTime() value
+     * @return              true if the time is up or the search was stopped
+     */
+    private boolean shouldStop (long deadline) {
+        if (progress != null) {
+            progress.addNodes(CLOCK_INTERVAL);
+            progress.update(maxDepth, getBestMove(), getScore());
+
+            if (progress.isStopped()) {
+                return true;
+            }
+        }
+        return System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * @return              the most visited move at the root
+     */
+    int getBestMove () {
+        int best = getBestChild();
+
+        if (best == -1) {
+            // The tree was full before the root could be expanded.
+            board.getAvailableMoves(empty);
+            return empty[0];
+        }
+        return move[best];
+    }
+
+    /**
+     * Get the score of the most visited move, from -1000 if every random game
+     * through it was lost to 1000 if every one was won.
+     * @return              the score of the root for the player to move (0 if it has no children)
+     */
+    private int getScore () {
+        int best = getBestChild();
+        return (best == -1) ? 0 : Math.round(1000 * (2 * wins[best] / visits[best] - 1));
+    }
+
+    /**
+     * @return              the slot of the most visited child of the root (-1 if it has none)
+     */
+    private int getBestChild () {
+        int best = -1;
+
+        for (int child = firstChild[root]; child != -1 && child < firstChild[root] + childCount[root]; child++) {
+            if (best == -1 || visits[child] > visits[best]) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return              the number of iterations run by the last search
+     */
+    long getIterations () {
+        return iterations;
+    }
+
+    /**
+     * Make the position the root of the tree, keeping the part of the tree
+     * below it if it follows from the previous root.
+     * @param board         the Tic Tac Toe board to search
+     */
+    private void moveRoot (Board board) {
+        int node = (this.board != null) ? findPosition(board) : -1;
+
+        if (node == -1 || size > capacity / 4 * 3) {
+            size = 0;
+            node = addNode(-1);
+        }
+
+        root = node;
+        this.board = board.getDeepCopy();
+
+        if (playout == null || !playout.fits(board)) {
+            playout = new Playout(board);
+        }
+
+        if (path.length < board.getCellCount() + 1) {
+            path = new int[board.getCellCount() + 1];
+            empty = new int[board.getCellCount()];
+        }
+    }
+
+    /**
+     * Find a position in the tree that is at most two moves below the root.
+     * @param board         the Tic Tac Toe board
+     * @return              the slot of the position (-1 if it is not in the tree)
+     */
+    private int findPosition (Board board) {
+        Board previous = this.board;
+
+        if (board.getWidth() != previous.getWidth() || board.getHeight() != previous.getHeight()
+                || board.getWinLength() != previous.getWinLength()) {
+            return -1;
+        }
+
+        int movesPlayed = board.getMoveCount() - previous.getMoveCount();
+
+        if (movesPlayed < 0 || movesPlayed > 2) {
+            return -1;
+        }
+
+        // Every piece at the root must still be there. The new pieces are the
+        // moves played since, the first of them by the player to move at the root.
+        int first = -1, second = -1;
+
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            Board.State before = previous.getState(cell);
+            Board.State after = board.getState(cell);
+
+            if (before != Board.State.Blank && before != after) {
+                return -1;
+            } else if (before == Board.State.Blank && after == previous.getTurn()) {
+                first = cell;
+            } else if (before == Board.State.Blank && after != Board.State.Blank) {
+                second = cell;
+            }
+        }
+
+        int node = root;
+
+        if (movesPlayed >= 1) {
+            node = findChild(node, first);
+        }
+        if (movesPlayed == 2 && node != -1) {
+            node = findChild(node, second);
+        }
+        return node;
+    }
+
+    /**
+     * @param node          the slot of a position
+     * @param theMove       a move
+     * @return              the slot of the child reached by the move (-1 if it is not in the tree)
+     */
+    private int findChild (int node, int theMove) {
+        if (firstChild[node] == -1 || theMove == -1) {
+            return -1;
+        }
+
+        for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+            if (move[child] == theMove) {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Run one iteration: select a leaf, expand it, play it out and count the
+     * result on the path back up to the root.
+     */
+    private void iterate () {
+        int node = root;
+        int depth = 0;
+        path[depth++] = node;
+
+        while (firstChild[node] != -1 && !board.isGameOver()) {
+            node = select(node);
+            board.move(move[node]);
+            path[depth++] = node;
+        }
+
+        if (!board.isGameOver() && (node == root || visits[node] >= EXPANSION_VISITS) && expand(node)) {
+            node = select(node);
+            board.move(move[node]);
+            path[depth++] = node;
+        }
+
+        maxDepth = Math.max(maxDepth, depth - 1);
+
+        if (statistics != null) {
+            for (int i = 0; i < depth; i++) {
+                statistics.countNode(i);
+            }
+            statistics.countLeaf(board);
+        }
+
+        Board.State winner = playout.play(board, random);
+
+        // Walking back up, the player who made the move into each position
+        // alternates, starting with whoever made the last move on the path.
+        Board.State mover = (board.getTurn() == Board.State.X) ? Board.State.O : Board.State.X;
+
+        for (int i = depth - 1; i >= 0; i--) {
+            visits[path[i]]++;
+
+            if (winner == Board.State.Blank) {
+                wins[path[i]] += 0.5f;
+            } else if (winner == mover) {
+                wins[path[i]] += 1;
+            }
+
+            mover = (mover == Board.State.X) ? Board.State.O : Board.State.X;
+
+            if (i > 0) {
+                board.undo();
+            }
+        }
+    }
+
+    /**
+     * Choose the child to walk down to: a child that has never been visited,
+     * or else the one with the highest UCB1 value.
+     * @param node          the slot of a position whose children are in the tree
+     * @return              the slot of the child
+     */
+    private int select (int node) {
+        int first = firstChild[node];
+        int count = childCount[node];
+        double logVisits = Math.log(Math.max(visits[node], 1));
+
+        // Unvisited children are tried first, starting from a random one so
+        // that the top left cells are not always tried before the rest.
+        int offset = random.nextInt(count);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < count; i++) {
+            int child = first + (i + offset) % count;
+
+            if (visits[child] == 0) {
+                return child;
+            }
+
+            double value = wins[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Add the children of a position to the tree.
+     * @param node          the slot of the position, which is the one on the board
+     * @return              false if the tree is too full to hold them
+     */
+    private boolean expand (int node) {
+        int count = board.getAvailableMoves(empty);
+
+        if (size + count > capacity) {
+            return false;
+        }
+        if (size + count > firstChild.length) {
+            grow(size + count);
+        }
+
+        firstChild[node] = size;
+        childCount[node] = count;
+
+        for (int i = 0; i < count; i++) {
+            addNode(empty[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Make the arrays of the tree longer, doubling them up to the capacity.
+     * @param length        the number of positions the arrays must at least hold
+     */
+    private void grow (int length) {
+        length = (int) Math.min(capacity, Math.max(length, 2L * firstChild.length));
+        firstChild = Arrays.copyOf(firstChild, length);
+        childCount = Arrays.copyOf(childCount, length);
+        move = Arrays.copyOf(move, length);
+        visits = Arrays.copyOf(visits, length);
+        wins = Arrays.copyOf(wins, length);
+    }
+
+    /**
+     * Add an unvisited position to the end of the tree.
+     * @param theMove       the move that leads to it (-1 for the root)
+     * @return              the slot of the position
+     */
+    private int addNode (int theMove) {
+        firstChild[size] = -1;
+        childCount[size] = 0;
+        move[size] = theMove;
+        visits[size] = 0;
+        wins[size] = 0;
+        return size++;
+    }
+
+}
@@ -0,0 +1,372 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides the order in which the moves of a position are searched. Alpha-Beta
+ * Pruning cuts off the most when the best move is searched first, so every
+ * move is given a score and the moves are searched from the highest score to
+ * the lowest:
+ *
+ *  - the best move stored in the transposition table comes first,
+ *  - then the killer moves, the last two moves that caused a cutoff at the
+ *    same depth,
+ *  - then the rest by a static prior: the cells that lie on the most lines
+ *    first, and the cells closer to the center before the ones further out,
+ *  - and among cells with the same prior, the moves that caused the most
+ *    cutoffs so far in the game (the history heuristic).
+ *
+ * Ordering by the history heuristic before the priors does worse: a move that
+ * cuts off in one position of Tic Tac Toe says little about another one.
+ * Each of these can be switched off. The moves are picked one at a time, so a
+ * position that cuts off after its first move does not pay for sorting the
+ * rest. Every search needs its own MoveOrdering, but the history table is kept
+ * for each thread: it is looked up by prepare() at the start of every search,
+ * on the thread that runs it, and carries over from one search to the next
+ * until a new game is started.
+ */
+class MoveOrdering {
+
+    /**
+     * The ways of ordering the moves.
+     */
+    enum Heuristic {
+        PRIORS, HASH_MOVE, KILLER_MOVES, HISTORY
+    }
+
+    /**
+     * Every heuristic.
+     */
+    static final Set<Heuristic> ALL = EnumSet.allOf(Heuristic.class);
+
+    private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int KILLER_MOVE_SCORE = Integer.MAX_VALUE - 2;
+
+    /**
+     * History scores take up the low bits of a score, below the prior. When
+     * any history score reaches the limit, all of them are halved.
+     */
+    private static final int HISTORY_BITS = 18;
+    private static final int HISTORY_LIMIT = 1 << HISTORY_BITS;
+
+    private static final Map<Long, int[]> priorsBySize = new ConcurrentHashMap<>();
+    private static final ThreadLocal<History> histories = ThreadLocal.withInitial(History::new);
+
+    private final boolean usePriors;
+    private final boolean useHashMove;
+    private final boolean useKillerMoves;
+    private final boolean useHistory;
+
+    private final int[] priors;
+    private final int cellCount;
+
+    /**
+     * The history table of the thread that runs the search, indexed by the
+     * player (X first) and then the cell.
+     */
+    private int[] history;
+
+    /**
+     * The two killer moves of each depth, and the scores of the moves being
+     * searched at each depth.
+     */
+    private int[][] killers = new int[0][];
+    private int[][] scores = new int[0][];
+
+    /**
+     * Construct the move ordering of a search. prepare() must be called before
+     * the moves of a position are scored.
+     * @param board         the Tic Tac Toe board that will be searched
+     * @param heuristics    the heuristics to order the moves by
+     */
+    MoveOrdering (Board board, Set<Heuristic> heuristics) {
+        usePriors = heuristics.contains(Heuristic.PRIORS);
+        useHashMove = heuristics.contains(Heuristic.HASH_MOVE);
+        useKillerMoves = heuristics.contains(Heuristic.KILLER_MOVES);
+        useHistory = heuristics.contains(Heuristic.HISTORY);
+
+        cellCount = board.getCellCount();
+        priors = getPriors(board);
+    }
+
+    /**
+     * Construct the move ordering of a search that was handed out to another
+     * thread by a parallel search. It shares the history table of the search
+     * it was handed out by, but has killer moves of its own. Updates to the
+     * history table from different threads can be lost, which only changes
+     * the order of some moves.
+     * @param parent        the move ordering of the search that handed it out
+     */
+    MoveOrdering (MoveOrdering parent) {
+        usePriors = parent.usePriors;
+        useHashMove = parent.useHashMove;
+        useKillerMoves = parent.useKillerMoves;
+        useHistory = parent.useHistory;
+
+        cellCount = parent.cellCount;
+        priors = parent.priors;
+        history = parent.history;
+    }
+
+    /**
+     * Start a search: pick up the history table of the calling thread, which
+     * is cleared if the thread last searched a position of another game. A
+     * search can be run by a different thread each time, so this is called at
+     * the start of every search, on the thread that runs it.
+     * @param board         the Tic Tac Toe board that will be searched
+     */
+    void prepare (Board board) {
+        history = histories.get().forGame(board);
+    }
+
+    /**
+     * Check whether this move ordering was made for a board of the same size.
+     * @param board         the Tic Tac Toe board
+     * @return              true if it can be used to search the board
+     */
+    boolean fits (Board board) {
+        return board.getCellCount() == cellCount && getPriors(board) == priors;
+    }
+
+    /**
+     * Score the moves of a position. The moves are then searched in order by
+     * calling pickNext() for each of them.
+     * @param board         the Tic Tac Toe board
+     * @param moves         the available moves
+     * @param count         the number of available moves
+     * @param currentPly    the current depth
+     * @param hashMove      the best move stored in the transposition table (-1 if there is none)
+     */
+    void score (Board board, int[] moves, int count, int currentPly, int hashMove) {
+        int[] scores = getBuffer(currentPly, count);
+        int[] killers = getKillers(currentPly);
+        int side = (board.getTurn() == Board.State.X) ? 0 : cellCount;
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+
+            if (useHashMove && move == hashMove) {
+                scores[i] = HASH_MOVE_SCORE;
+            } else if (useKillerMoves && move == killers[0]) {
+                scores[i] = KILLER_MOVE_SCORE;
+            } else if (useKillerMoves && move == killers[1]) {
+                scores[i] = KILLER_MOVE_SCORE - 1;
+            } else {
+                int score = useHistory ? history[side + move] : 0;
+                scores[i] = usePriors ? score + (priors[move] << HISTORY_BITS) : score;
+            }
+        }
+    }
+
+    /**
+     * Move the best of the moves that have not been searched yet to the given
+     * index. Moves with the same score keep the order they were in.
+     * @param moves         the available moves
+     * @param count         the number of available moves
+     * @param currentPly    the current depth
+     * @param index         the number of moves already searched
+     */
+    void pickNext (int[] moves, int count, int currentPly, int index) {
+        int[] scores = this.scores[currentPly];
+        int best = index;
+
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+
+        if (best != index) {
+            int move = moves[best];
+            int score = scores[best];
+            System.arraycopy(moves, index, moves, index + 1, best - index);
+            System.arraycopy(scores, index, scores, index + 1, best - index);
+            moves[index] = move;
+            scores[index] = score;
+        }
+    }
+
+    /**
+     * Sort every move that has not been searched yet.
+     * @param moves         the available moves
+     * @param count         the number of available moves
+     * @param currentPly    the current depth
+     * @param index         the number of moves already searched
+     */
+    void sortRest (int[] moves, int count, int currentPly, int index) {
+        for (int i = index; i < count - 1; i++) {
+            pickNext(moves, count, currentPly, i);
+        }
+    }
+
+    /**
+     * Remember a move that caused a cutoff.
+     * @param board         the Tic Tac Toe board, with the move taken back
+     * @param move          the move
+     * @param currentPly    the current depth
+     * @param depth         how many plies were left to search below the position
+     */
+    void cutoff (Board board, int move, int currentPly, int depth) {
+        int[] killers = getKillers(currentPly);
+
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+
+        int side = (board.getTurn() == Board.State.X) ? 0 : cellCount;
+        history[side + move] += depth * depth;
+
+        if (history[side + move] >= HISTORY_LIMIT) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * Get the score buffer of a depth.
+     * @param currentPly    the current depth
+     * @param count         the number of moves it must hold
+     * @return              the buffer
+     */
+    private int[] getBuffer (int currentPly, int count) {
+        if (currentPly >= scores.length) {
+            scores = Arrays.copyOf(scores, currentPly + 8);
+        }
+        if (scores[currentPly] == null || scores[currentPly].length < count) {
+            scores[currentPly] = new int[cellCount];
+        }
+        return scores[currentPly];
+    }
+
+    /**
+     * Get the killer moves of a depth.
+     * @param currentPly    the current depth
+     * @return              the two killer moves (-1 where there is none)
+     */
+    private int[] getKillers (int currentPly) {
+        if (currentPly >= killers.length) {
+            int length = killers.length;
+            killers = Arrays.copyOf(killers, currentPly + 8);
+
+            for (int i = length; i < killers.length; i++) {
+                killers[i] = new int[] {-1, -1};
+            }
+        }
+        return killers[currentPly];
+    }
+
+    /**
+     * Get the static priors of every cell of a board, computing them the first
+     * time a board of that size is seen. The prior of a cell is the number of
+     * lines of winLength cells that go through it, with how close the cell is
+     * to the center to break ties.
+     * @param board         the Tic Tac Toe board
+     * @return              the prior of every cell
+     */
+    private static int[] getPriors (Board board) {
+        int width = board.getWidth(), height = board.getHeight(), winLength = board.getWinLength();
+        long size = ((long) width << 40) | ((long) height << 20) | winLength;
+
+        return priorsBySize.computeIfAbsent(size, key -> {
+            int[] priors = new int[width * height];
+            int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int lines = 0;
+
+                    for (int[] d : directions) {
+                        for (int start = 0; start < winLength; start++) {
+                            int x0 = x - d[0] * start, y0 = y - d[1] * start;
+                            int x1 = x0 + d[0] * (winLength - 1), y1 = y0 + d[1] * (winLength - 1);
+
+                            if (x0 >= 0 && y0 >= 0 && y0 < height && x1 < width && y1 >= 0 && y1 < height) {
+                                lines++;
+                            }
+                        }
+                    }
+
+                    int distance = (Math.abs(2 * x - width + 1) + Math.abs(2 * y - height + 1)) / 2;
+                    priors[y * width + x] = lines * 16 + 15 - Math.min(distance, 15);
+                }
+            }
+            return priors;
+        });
+    }
+
+    /**
+     * Forget the history table of the calling thread, so that its next search
+     * orders its moves as if it were the first search of the thread.
+     */
+    static void clearHistory () {
+        histories.remove();
+    }
+
+    /**
+     * The history table of a thread, kept from one search to the next while
+     * the same game goes on.
+     */
+    private static class History {
+
+        private int[] table = new int[0];
+        private long size = -1;
+        private int moveCount;
+
+        /**
+         * The pieces of each player (X first) on the board of the last search.
+         */
+        private long[][] cells = new long[2][0];
+
+        /**
+         * Get the history table for a game, clearing it if the board is from a
+         * new game: a board of another size, one with fewer moves played than
+         * the board of the last search, or one that is missing a piece of the
+         * board of the last search.
+         * @param board         the Tic Tac Toe board
+         * @return              the history table, indexed by the player (X
+         *                      first) and then the cell
+         */
+        private int[] forGame (Board board) {
+            long size = ((long) board.getWidth() << 40) | ((long) board.getHeight() << 20) | board.getWinLength();
+
+            if (size != this.size || board.getMoveCount() < moveCount || !continues(board)) {
+                table = new int[2 * board.getCellCount()];
+                cells = new long[2][(board.getCellCount() + 63) / 64];
+                this.size = size;
+            }
+
+            for (int word = 0; word < cells[0].length; word++) {
+                cells[0][word] = board.getCells(Board.State.X, word);
+                cells[1][word] = board.getCells(Board.State.O, word);
+            }
+            moveCount = board.getMoveCount();
+            return table;
+        }
+
+        /**
+         * Check that every piece on the board of the last search is still on
+         * the board, so that the board can follow it in the same game. Only
+         * called for a board of the same size.
+         * @param board         the Tic Tac Toe board
+         * @return              true if the board holds every piece of the last one
+         */
+        private boolean continues (Board board) {
+            for (int word = 0; word < cells[0].length; word++) {
+                if ((cells[0][word] & ~board.getCells(Board.State.X, word)) != 0
+                        || (cells[1][word] & ~board.getCells(Board.State.O, word)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
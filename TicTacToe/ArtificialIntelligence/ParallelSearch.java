@@ -0,0 +1,52 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Plays a move in a game of Tic Tac Toe using the AlphaBetaAdvanced algorithm
+ * spread over several threads.
+ *
+ * The search runs on a ForkJoinPool and splits its work in the style of Young
+ * Brothers Wait: the first move of a position is searched alone, and once it
+ * has set a bound the rest of the moves are searched in parallel. Positions
+ * close to the bottom of the tree are searched on a single thread. One pool is
+ * kept for every thread count that has been asked for, so that the threads
+ * are not started again for every move.
+ */
+class ParallelSearch {
+
+    private static final Map<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+    private final ForkJoinPool pool;
+    private final AlphaBetaAdvanced search;
+
+    /**
+     * Construct a search.
+     * @param threads       the number of threads to search with
+     */
+    ParallelSearch (int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0.");
+        }
+
+        pool = pools.computeIfAbsent(threads, ForkJoinPool::new);
+        search = new AlphaBetaAdvanced(pool);
+    }
+
+    /**
+     * Execute the algorithm.
+     * @param board         the Tic Tac Toe board to search
+     * @param maxPly        the maximum depth
+     * @param statistics    where to count what the search does on every thread (null to not count it)
+     * @return              the best move for the player to move
+     */
+    SearchResult run (Board board, double maxPly, SearchStatistics statistics) {
+        return pool.invoke(ForkJoinTask.adapt(() -> search.run(board, maxPly, statistics)));
+    }
+
+}
@@ -0,0 +1,230 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+/**
+ * Plays a move in a game of Tic Tac Toe by looking it up in a table that holds
+ * the perfect move for every position that can occur on a 3x3 board.
+ *
+ * The table is built once, when the class is loaded, by solving the whole
+ * game. Each position is identified by writing the board as a base 3 number
+ * (Blank = 0, X = 1, O = 2, the first cell being the least significant digit),
+ * which gives 3^9 = 19,683 entries. Every entry holds the value of the position
+ * for the player to move, how many moves are left until the game ends, and
+ * every move that achieves that value. Like AlphaBetaAdvanced, the table
+ * prefers the quickest victory and the slowest loss.
+ */
+class PerfectPlay {
+
+    static final int LOSS = 1;
+    static final int DRAW = 2;
+    static final int WIN = 3;
+
+    private static final int CELLS = 9;
+
+    /**
+     * The packed entry of every position. Bits 0 to 8 hold the best moves,
+     * bits 9 to 12 the distance to the end of the game and bits 13 and 14 the
+     * value. An entry of 0 is a position that cannot be reached.
+     */
+    private static final short[] table = new short[19683];
+
+    private static final int[] POWERS_OF_THREE = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+    static {
+        solve(new Board3(), 0);
+    }
+
+    /**
+     * PerfectPlay cannot be instantiated.
+     */
+    private PerfectPlay () {}
+
+    /**
+     * Execute the algorithm. Scores wins and losses like AlphaBetaAdvanced.
+     * @param board     the Tic Tac Toe board to search
+     * @return          the perfect move for the player to move
+     */
+    static SearchResult run (Board board) {
+        int move = Integer.numberOfTrailingZeros(getBestMoves(board));
+        int distance = getDistance(board);
+        int win = Evaluator.WIN + board.getCellCount() + 1 - distance;
+        int score;
+
+        if (getValue(board) == WIN) {
+            score = win;
+        } else if (getValue(board) == LOSS) {
+            score = -win;
+        } else {
+            score = 0;
+        }
+        return new SearchResult(move, score, distance, 0);
+    }
+
+    /**
+     * Get the value of the position for the player whose turn it is.
+     * @param board     the Tic Tac Toe board
+     * @return          WIN, DRAW or LOSS
+     */
+    static int getValue (Board board) {
+        return lookUp(board) >>> 13;
+    }
+
+    /**
+     * Get the number of moves left in the game if both players play perfectly.
+     * @param board     the Tic Tac Toe board
+     * @return          the number of moves until the game is over
+     */
+    static int getDistance (Board board) {
+        return (lookUp(board) >>> 9) & 0xF;
+    }
+
+    /**
+     * Get every move that achieves the value of the position in the least
+     * (when winning) or the most (when losing) number of moves.
+     * @param board     the Tic Tac Toe board
+     * @return          the best moves, as a bit set of indexes
+     */
+    static int getBestMoves (Board board) {
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
+        return lookUp(board) & 0x1FF;
+    }
+
+    /**
+     * Find the entry of a position.
+     * @param board     the Tic Tac Toe board
+     * @return          the packed entry
+     */
+    private static int lookUp (Board board) {
+        if (board.getWidth() != 3 || board.getHeight() != 3 || board.getWinLength() != 3) {
+            throw new IllegalArgumentException("PerfectPlay only supports 3x3 boards with 3 in a row.");
+        }
+
+        int index = 0;
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            index += POWERS_OF_THREE[cell] * board.getState(cell).ordinal();
+        }
+
+        return table[index];
+    }
+
+    /**
+     * Solve every position that can be reached from the specified one and
+     * store them in the table.
+     * @param board     the position to solve
+     * @param index     the base 3 index of the position
+     * @return          the packed entry of the position
+     */
+    private static int solve (Board3 board, int index) {
+        if (table[index] != 0) {
+            return table[index];
+        }
+
+        int entry;
+
+        if (board.winner) {
+            entry = LOSS << 13;
+        } else if (board.pieces == CELLS) {
+            entry = DRAW << 13;
+        } else {
+            int bestScore = Integer.MIN_VALUE;
+            int bestMoves = 0;
+            int bestValue = 0, bestDistance = 0;
+            int digit = (board.pieces % 2 == 0) ? 1 : 2;
+
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (board.cells[cell] != 0) {
+                    continue;
+                }
+
+                board.move(cell, digit);
+                int child = solve(board, index + digit * POWERS_OF_THREE[cell]);
+                board.undo(cell);
+
+                int value = WIN + LOSS - (child >>> 13);
+                int distance = ((child >>> 9) & 0xF) + 1;
+                int score = score(value, distance);
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMoves = 0;
+                    bestValue = value;
+                    bestDistance = distance;
+                }
+                if (score == bestScore) {
+                    bestMoves |= 1 << cell;
+                }
+            }
+
+            entry = (bestValue << 13) | (bestDistance << 9) | bestMoves;
+        }
+
+        table[index] = (short) entry;
+        return entry;
+    }
+
+    /**
+     * Rank a result so that a quicker victory beats a slower one and a slower
+     * loss beats a quicker one.
+     * @param value     WIN, DRAW or LOSS
+     * @param distance  the number of moves until the game is over
+     * @return          the score of the result
+     */
+    private static int score (int value, int distance) {
+        if (value == WIN) {
+            return 100 - distance;
+        } else if (value == LOSS) {
+            return -100 + distance;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * A minimal 3x3 board used while building the table. Only knows which
+     * cells are taken and whether the last move won the game.
+     */
+    private static class Board3 {
+
+        private static final int[][] LINES = {
+                {0, 1, 2}, {3, 4, 5}, {6, 7, 8},
+                {0, 3, 6}, {1, 4, 7}, {2, 5, 8},
+                {0, 4, 8}, {2, 4, 6}
+        };
+
+        private final int[] cells = new int[CELLS];
+        private int pieces;
+        private boolean winner;
+
+        /**
+         * Place a piece and check if it wins the game.
+         * @param cell      the index of the cell
+         * @param digit     1 for X, 2 for O
+         */
+        private void move (int cell, int digit) {
+            cells[cell] = digit;
+            pieces++;
+
+            for (int[] line : LINES) {
+                if (cells[line[0]] == digit && cells[line[1]] == digit && cells[line[2]] == digit) {
+                    winner = true;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Take a piece back. The game can only have been won by the last move.
+         * @param cell      the index of the cell
+         */
+        private void undo (int cell) {
+            cells[cell] = 0;
+            pieces--;
+            winner = false;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+import TicTacToe.Lines;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays random games to the end, as fast as possible, for Monte Carlo Tree
+ * Search.
+ *
+ * On boards of up to 64 cells the game is played on the bits of two longs
+ * instead of on the board: the pieces of each player are a mask, a move sets
+ * a bit, and a move wins if it fills one of the lines through its cell, each
+ * of which is a mask too. The empty cells are kept in a list that each move
+ * removes its cell from by swapping in the last one, so every move takes
+ * constant time. The board is only read, and nothing is allocated. Larger
+ * boards are played on the board itself and taken back afterwards.
+ *
+ * A playout must only be used by one thread at a time. The moves are chosen
+ * by the random number generator passed in, so a generator with a fixed seed
+ * plays the same games every time.
+ */
+class Playout {
+
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final int cellCount;
+
+    /**
+     * For every cell, the cells of each of the lines through it (null on
+     * boards of more than 64 cells).
+     */
+    private final long[][] linesThrough;
+
+    /**
+     * The empty cells of the game being played.
+     */
+    private final int[] empty;
+
+    /**
+     * Construct a playout for the boards of a size.
+     * @param board         a Tic Tac Toe board of the size
+     */
+    Playout (Board board) {
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.winLength = board.getWinLength();
+        this.cellCount = board.getCellCount();
+        this.empty = new int[cellCount];
+
+        this.linesThrough = (cellCount > 64) ? null : getLinesThrough(board);
+    }
+
+    /**
+     * Get the lines of a board of up to 64 cells as masks.
+     * @param board         the Tic Tac Toe board
+     * @return              for every cell, the cells of each of the lines through it
+     */
+    static long[][] getLinesThrough (Board board) {
+        Lines lines = board.getLines();
+        long[][] linesThrough = new long[board.getCellCount()][];
+
+        for (int cell = 0; cell < linesThrough.length; cell++) {
+            linesThrough[cell] = new long[lines.countThrough(cell)];
+
+            for (int i = 0; i < linesThrough[cell].length; i++) {
+                int line = lines.getLineThrough(cell, i);
+
+                for (int j = 0; j < board.getWinLength(); j++) {
+                    linesThrough[cell][i] |= 1L << lines.getCell(line, j);
+                }
+            }
+        }
+        return linesThrough;
+    }
+
+    /**
+     * Check whether the playout can play games on a board.
+     * @param board         the Tic Tac Toe board
+     * @return              true if the board is of the size of the playout
+     */
+    boolean fits (Board board) {
+        return board.getWidth() == width && board.getHeight() == height && board.getWinLength() == winLength;
+    }
+
+    /**
+     * Play random moves from the position until the game is over. The board
+     * is left as it was.
+     * @param board         the Tic Tac Toe board, which must fit the playout
+     * @param random        the random number generator that chooses the moves
+     * @return              the winner (Blank for a draw)
+     */
+    Board.State play (Board board, SplittableRandom random) {
+        if (board.isGameOver()) {
+            return board.getWinner();
+        }
+        return (linesThrough == null) ? playOnBoard(board, random) : playOnMasks(board, random);
+    }
+
+    /**
+     * Play the game on the bits of two longs.
+     * @param board         the Tic Tac Toe board
+     * @param random        the random number generator that chooses the moves
+     * @return              the winner (Blank for a draw)
+     */
+    private Board.State playOnMasks (Board board, SplittableRandom random) {
+        Board.State player = board.getTurn();
+        long mover = board.getCells(player, 0);
+        long other = board.getCells(player == Board.State.X ? Board.State.O : Board.State.X, 0);
+        int count = board.getAvailableMoves(empty);
+
+        while (count > 0) {
+            int i = random.nextInt(count);
+            int cell = empty[i];
+            empty[i] = empty[--count];
+            mover |= 1L << cell;
+
+            if (completesLine(mover, cell)) {
+                return player;
+            }
+
+            long pieces = mover;
+            mover = other;
+            other = pieces;
+            player = (player == Board.State.X) ? Board.State.O : Board.State.X;
+        }
+        return Board.State.Blank;
+    }
+
+    /**
+     * Check whether a piece completes a line.
+     * @param pieces        the cells of the player, with the piece
+     * @param cell          the cell of the piece
+     * @return              true if one of the lines through the cell is full of the player's pieces
+     */
+    private boolean completesLine (long pieces, int cell) {
+        for (long line : linesThrough[cell]) {
+            if ((pieces & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Play the game on the board, and take every move back.
+     * @param board         the Tic Tac Toe board
+     * @param random        the random number generator that chooses the moves
+     * @return              the winner (Blank for a draw)
+     */
+    private Board.State playOnBoard (Board board, SplittableRandom random) {
+        int count = board.getAvailableMoves(empty);
+        int played = 0;
+
+        while (!board.isGameOver()) {
+            int i = random.nextInt(count);
+            int cell = empty[i];
+            empty[i] = empty[--count];
+
+            board.move(cell);
+            played++;
+        }
+
+        Board.State winner = board.getWinner();
+
+        for (int i = 0; i < played; i++) {
+            board.undo();
+        }
+        return winner;
+    }
+
+}
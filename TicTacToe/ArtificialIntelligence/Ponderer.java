@@ -0,0 +1,116 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the searches of an engine on a thread of its own, and lets the engine
+ * think on the opponent's time (pondering).
+ *
+ * After the AI has moved, ponder() searches the position with the opponent on
+ * move until the opponent moves. Rather than guess the reply, it searches
+ * every one of them, and leaves what it finds where the next search of the
+ * engine looks first: the transposition table shared by the Alpha-Beta
+ * searches, the tree of Monte Carlo Tree Search, and the solution cache. When
+ * the opponent moves, search() stops the pondering and searches the position
+ * after the real reply, which is answered mostly from what the pondering
+ * left.
+ *
+ * Every search of the engine runs on the thread of the ponderer, one after
+ * the other, so the engine is never used by two threads at once. The methods
+ * must all be called from the same thread, the one that plays the game.
+ */
+public final class Ponderer {
+
+    private final Engine engine;
+
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Ponderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The progress of the search on the opponent's time, which stops it (null
+     * if the engine is not pondering).
+     */
+    private SearchProgress pondering;
+
+    /**
+     * Construct a ponderer.
+     * @param engine        the engine to search with, which must not be used anywhere else
+     */
+    public Ponderer (Engine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Start searching a position with the opponent on move in the background,
+     * until stop() or search() is called. Nothing is searched if the game is
+     * over.
+     * @param board         the Tic Tac Toe board, which is copied
+     */
+    public void ponder (Board board) {
+        stop();
+
+        if (board.isGameOver()) {
+            return;
+        }
+
+        Board position = board.getDeepCopy();
+        SearchProgress progress = new SearchProgress();
+        pondering = progress;
+        searcher.execute(() -> ponder(position, progress));
+    }
+
+    /**
+     * Search a position over and over until the search is stopped or the
+     * position is solved. Every search picks up where the last one left off:
+     * the Alpha-Beta searches from their transposition table, and Monte Carlo
+     * Tree Search from its tree. The transposition tables only start a new
+     * generation for the first of the searches, since the rest search the same
+     * position, so what the earlier searches stored is kept for the real one.
+     * @param board         the Tic Tac Toe board to search
+     * @param progress      the progress that stops the search
+     */
+    private void ponder (Board board, SearchProgress progress) {
+        while (!progress.isStopped()) {
+            SearchResult result = engine.search(board, null, progress);
+
+            if (result.getNodes() == 0 || result.getDepth() >= board.getAvailableMoveCount()
+                    || AlphaBetaAdvanced.isDecisive(board, result.getScore(), result.getDepth())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop pondering, if the engine is. Returns right away; the search stops
+     * on its own thread soon after.
+     */
+    public void stop () {
+        if (pondering != null) {
+            pondering.stop();
+            pondering = null;
+        }
+    }
+
+    /**
+     * Stop pondering and search a position for the best move. The search
+     * starts as soon as the pondering has stopped.
+     * @param board         the Tic Tac Toe board to search, which is copied
+     * @param statistics    where to add the counts of the search (null to not count anything)
+     * @param progress      where to report the progress of the search (null to not report it)
+     * @return              the result of the search, once it finishes
+     */
+    public CompletableFuture<SearchResult> search (Board board, SearchStatistics statistics,
+                                                   SearchProgress progress) {
+        stop();
+        Board position = board.getDeepCopy();
+        return CompletableFuture.supplyAsync(() -> engine.search(position, statistics, progress), searcher);
+    }
+
+}
@@ -0,0 +1,397 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.Arrays;
+
+/**
+ * Uses Principal Variation Search (NegaScout) to play a move in a game of Tic
+ * Tac Toe, either on its own or driven by MTD(f).
+ *
+ * Principal Variation Search assumes that the first move of every position is
+ * the best one. It searches the first move with the full window and every
+ * other move with a zero window, which only proves that the move is no better
+ * than the first one. That is much cheaper than finding its score. Only a move
+ * that turns out to be better is searched again with the full window.
+ *
+ * MTD(f) takes this further and only ever searches with a zero window. Each
+ * search tells whether the score of the position is above or below a guess,
+ * and the guess is moved until the two meet. The scores of Tic Tac Toe are
+ * small integers (one more than the number of cells less the number of moves
+ * to the end of the game, or 0 for a draw), so only a few searches are needed.
+ * The searches repeat most of each other's work, which the transposition table
+ * makes up for.
+ *
+ * The search is written in negamax form: every score is from the point of view
+ * of the player to move. Like AlphaBetaAdvanced, it prefers the quickest
+ * victory and the slowest loss, and it shares entries between symmetric
+ * positions. It has a transposition table of its own.
+ */
+class PrincipalVariationSearch {
+
+    /**
+     * The amount of memory used by the transposition table.
+     */
+    private static final int TABLE_MEGABYTES = 16;
+
+    private static final TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+
+    private double maxPly;
+
+    /**
+     * A score higher than any the search can return.
+     */
+    private int infinity;
+
+    /**
+     * The moves available at each depth of the search.
+     */
+    private int[][] moves = new int[0][];
+
+    private MoveOrdering ordering;
+    private long nodes;
+    private int bestMove;
+
+    /**
+     * Where the search counts what it does (null if nothing is counted).
+     */
+    private SearchStatistics statistics;
+
+    /**
+     * Construct a search.
+     */
+    PrincipalVariationSearch () {}
+
+    /**
+     * Execute Principal Variation Search.
+     * @param board         the Tic Tac Toe board to search
+     * @param maxPly        the maximum depth
+     * @param statistics    where to count what the search does (null to not count it)
+     * @return              the best move for the player to move
+     */
+    SearchResult run (Board board, double maxPly, SearchStatistics statistics) {
+        this.statistics = statistics;
+        table.newSearch(board.getHash());
+        int score = search(board, maxPly);
+        return new SearchResult(bestMove, score, getDepth(board, 0), nodes);
+    }
+
+    /**
+     * Execute MTD(f).
+     * @param board         the Tic Tac Toe board to search
+     * @param maxPly        the maximum depth
+     * @param statistics    where to count what the search does (null to not count it)
+     * @return              the best move for the player to move
+     */
+    SearchResult runMTDF (Board board, double maxPly, SearchStatistics statistics) {
+        this.statistics = statistics;
+        table.newSearch(board.getHash());
+        int score = mtdf(board, maxPly);
+        return new SearchResult(bestMove, score, getDepth(board, 0), nodes);
+    }
+
+    /**
+     * Search the position with Principal Variation Search without playing a
+     * move.
+     * @param board         the Tic Tac Toe board to search
+     * @param maxPly        the maximum depth
+     * @return              the score of the board for the player to move
+     */
+    int search (Board board, double maxPly) {
+        prepare(board, maxPly);
+        return negaScout(board, -infinity, infinity, 0);
+    }
+
+    /**
+     * Search the position with MTD(f) without playing a move. The first guess
+     * is the score stored in the transposition table, or a draw.
+     * @param board         the Tic Tac Toe board to search
+     * @param maxPly        the maximum depth
+     * @return              the score of the board for the player to move
+     */
+    int mtdf (Board board, double maxPly) {
+        prepare(board, maxPly);
+
+        long entry = table.probe(board.getCanonicalHash());
+        int guess = (entry == TranspositionTable.MISS) ? 0 : TranspositionTable.score(entry);
+        int lower = -infinity, upper = infinity;
+
+        // Every search either raises the lower bound or lowers the upper
+        // bound. A search that fails high also sets the best move, and one
+        // that fails low does not touch it, so it always belongs to the last
+        // search that failed high.
+        while (lower < upper) {
+            int beta = (guess == lower) ? guess + 1 : guess;
+            guess = negaScout(board, beta - 1, beta, 0);
+
+            if (guess < beta) {
+                upper = guess;
+            } else {
+                lower = guess;
+            }
+        }
+        return guess;
+    }
+
+    /**
+     * Remove every position from the transposition table shared by the
+     * searches, so that the next search starts from scratch. Must not be
+     * called while a search is running.
+     */
+    static void clearTable () {
+        table.clear();
+    }
+
+    /**
+     * @return              the move chosen at the root by the last search
+     */
+    int getBestMove () {
+        return bestMove;
+    }
+
+    /**
+     * @return              the number of positions visited by the last search
+     */
+    long getNodes () {
+        return nodes;
+    }
+
+    /**
+     * Reset the state of the search.
+     * @param board         the Tic Tac Toe board to search
+     * @param maxPly        the maximum depth
+     */
+    private void prepare (Board board, double maxPly) {
+        if (maxPly < 1) {
+            throw new IllegalArgumentException("Maximum depth must be greater than 0.");
+        }
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
+
+        this.maxPly = maxPly;
+        this.infinity = board.getCellCount() + 2;
+        nodes = 0;
+        bestMove = -1;
+
+        if (ordering == null || !ordering.fits(board)) {
+            ordering = new MoveOrdering(board, MoveOrdering.ALL);
+        }
+        ordering.prepare(board);
+    }
+
+    /**
+     * The meat of the algorithm. Fails soft: a score outside of the window is
+     * still a bound on the score of the position.
+     * @param board         the Tic Tac Toe board to play on
+     * @param alpha         the alpha value
+     * @param beta          the beta value
+     * @param ply           the number of moves played since the root
+     * @return              the score of the board for the player to move
+     */
+    private int negaScout (Board board, int alpha, int beta, int ply) {
+        nodes++;
+
+        if (statistics != null) {
+            statistics.countNode(ply);
+
+            if (board.isGameOver() || ply == maxPly) {
+                statistics.countLeaf(board);
+            }
+        }
+
+        if (board.isGameOver()) {
+            return score(board, ply);
+        }
+        if (ply == maxPly) {
+            return 0;
+        }
+
+        int depth = getDepth(board, ply);
+        long entry = table.probe(board.getCanonicalHash());
+        int hashMove = -1;
+
+        if (statistics != null) {
+            statistics.countProbe(entry != TranspositionTable.MISS);
+        }
+
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.move(entry);
+
+            if (hashMove != -1) {
+                hashMove = board.getSymmetry().invert(board.getCanonicalSymmetry(), hashMove);
+            }
+
+            // The root is always searched because it has to play a move.
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = getMoves(board, ply);
+        int count = board.getDistinctMoves(moves);
+        ordering.score(board, moves, count, ply, hashMove);
+
+        int best = -infinity;
+        int indexOfBestMove = -1;
+        int a = alpha;
+
+        for (int i = 0; i < count; i++) {
+            ordering.pickNext(moves, count, ply, i);
+            int theMove = moves[i];
+            int score;
+
+            board.move(theMove);
+
+            if (i == 0) {
+                score = -negaScout(board, -beta, -a, ply + 1);
+            } else {
+                // Prove that the move is no better than the best one so far,
+                // and search it properly only if it is.
+                score = -negaScout(board, -a - 1, -a, ply + 1);
+
+                if (score > a && score < beta) {
+                    score = -negaScout(board, -beta, -score, ply + 1);
+                }
+            }
+
+            board.undo();
+
+            if (score > best) {
+                best = score;
+            }
+
+            if (score > a) {
+                a = score;
+                indexOfBestMove = theMove;
+            }
+
+            if (a >= beta) {
+                ordering.cutoff(board, theMove, ply, depth);
+
+                if (statistics != null) {
+                    statistics.countCutoff(i);
+                }
+                break;
+            }
+        }
+
+        store(board, alpha, beta, best, ply, indexOfBestMove);
+
+        if (ply == 0 && indexOfBestMove != -1) {
+            bestMove = indexOfBestMove;
+        }
+        return best;
+    }
+
+    /**
+     * Get the buffer for the moves available at a depth.
+     * @param board         the Tic Tac Toe board to play on
+     * @param ply           the number of moves played since the root
+     * @return              an array large enough for every available move
+     */
+    private int[] getMoves (Board board, int ply) {
+        if (ply >= moves.length) {
+            moves = Arrays.copyOf(moves, ply + board.getAvailableMoveCount() + 1);
+        }
+        if (moves[ply] == null || moves[ply].length < board.getAvailableMoveCount()) {
+            moves[ply] = new int[board.getAvailableMoveCount()];
+        }
+        return moves[ply];
+    }
+
+    /**
+     * Get how many plies are left to search below the current position.
+     * @param board         the Tic Tac Toe board to play on
+     * @param ply           the number of moves played since the root
+     * @return              the remaining depth (the number of empty cells if the search is not cut off)
+     */
+    private int getDepth (Board board, int ply) {
+        return (int)Math.min(maxPly - ply, board.getAvailableMoveCount());
+    }
+
+    /**
+     * Store the score of the current position in the transposition table.
+     * @param board         the Tic Tac Toe board to play on
+     * @param alpha         the alpha value the position was searched with
+     * @param beta          the beta value the position was searched with
+     * @param score         the score of the board
+     * @param ply           the number of moves played since the root
+     * @param bestMove      the best move found (-1 if every move failed low)
+     */
+    private void store (Board board, int alpha, int beta, int score, int ply, int bestMove) {
+        int bound;
+
+        if (score <= alpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (score >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+
+        if (bestMove != -1) {
+            bestMove = board.getSymmetry().apply(board.getCanonicalSymmetry(), bestMove);
+        }
+
+        table.store(board.getCanonicalHash(), toTable(score, ply), getDepth(board, ply), bound, bestMove);
+    }
+
+    /**
+     * Convert a score into the form stored in the transposition table, where
+     * wins and losses are counted from the position itself rather than from
+     * the root.
+     * @param score         the score of the board
+     * @param ply           the number of moves played since the root
+     * @return              the score to store
+     */
+    private static int toTable (int score, int ply) {
+        if (score > 0) {
+            return score + ply;
+        } else if (score < 0) {
+            return score - ply;
+        }
+        return 0;
+    }
+
+    /**
+     * Convert a score from the transposition table back into a score for the
+     * current search.
+     * @param score         the stored score
+     * @param ply           the number of moves played since the root
+     * @return              the score of the board
+     */
+    private static int fromTable (int score, int ply) {
+        if (score > 0) {
+            return score - ply;
+        } else if (score < 0) {
+            return score + ply;
+        }
+        return 0;
+    }
+
+    /**
+     * Get the score of a board where the game is over, for the player to
+     * move. A win is worth one more than the number of cells less the number
+     * of moves it took, so the quickest win scores the highest.
+     * @param board         the Tic Tac Toe board
+     * @param ply           the number of moves played since the root
+     * @return              the score of the board
+     */
+    private static int score (Board board, int ply) {
+        if (board.getWinner() == Board.State.Blank) {
+            return 0;
+        }
+
+        // The player who just moved won, so the player to move has lost.
+        return -(board.getCellCount() + 1 - ply);
+    }
+
+}
@@ -2,30 +2,57 @@ package ArtificialIntelligence;
 
 import TicTacToe.Board;
 
+import java.util.SplittableRandom;
+
 /**
  * Plays a random move in Tic Tac Toe.
+ *
+ * Every player has a random number generator of its own, so players on
+ * different threads never contend for one, and a player made with a seed
+ * plays the same moves every time. Choosing a move does not allocate anything
+ * but the result.
  */
 class Random {
 
+    private final SplittableRandom random;
+
+    /**
+     * The empty cells of the board, kept from one move to the next.
+     */
+    private int[] moves = new int[0];
+
     /**
-     * Random cannot be instantiated.
+     * Construct a player that plays different moves on every run.
      */
-    private Random () {}
+    Random () {
+        this.random = new SplittableRandom();
+    }
+
+    /**
+     * Construct a player that plays the same moves on every run.
+     * @param seed      the seed of the random number generator
+     */
+    Random (long seed) {
+        this.random = new SplittableRandom(seed);
+    }
 
     /**
      * Execute the algorithm.
-     * @param board     the Tic Tac Toe board to play on
+     * @param board     the Tic Tac Toe board to search
+     * @return          a random empty cell
      */
-    static void run (Board board) {
-        int[] moves = new int[board.getAvailableMoves().size()];
-        int index = 0;
+    SearchResult run (Board board) {
+        if (board.isGameOver()) {
+            throw new IllegalStateException("TicTacToe is over. No moves can be played.");
+        }
 
-        for (Integer item : board.getAvailableMoves()) {
-            moves[index++] = item;
+        if (moves.length < board.getCellCount()) {
+            moves = new int[board.getCellCount()];
         }
 
-        int randomMove = moves[new java.util.Random().nextInt(moves.length)];
-        board.move(randomMove);
+        int count = board.getAvailableMoves(moves);
+        int randomMove = moves[random.nextInt(count)];
+        return new SearchResult(randomMove, 0, 0, 0);
     }
 
 }
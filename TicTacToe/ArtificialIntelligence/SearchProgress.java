@@ -0,0 +1,99 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shows how far a search running on another thread has got, and lets that
+ * thread tell it to play the best move it has found so far.
+ *
+ * A search reports to the progress that is passed to
+ * {@link Engine#search(Board, SearchStatistics, SearchProgress)}: the number
+ * of positions it has visited as it goes, and the depth, move and score of
+ * its best result every time it improves on it. The progress can be read and
+ * stopped from any thread while the search runs. A progress is meant for a
+ * single search, since once it is stopped it stays stopped.
+ */
+public final class SearchProgress {
+
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile int depth;
+    private volatile int move = -1;
+    private volatile int score;
+    private volatile boolean stopped;
+
+    /**
+     * Construct the progress of a search that has not started.
+     */
+    public SearchProgress () {}
+
+    /**
+     * Count positions visited by the search.
+     * @param count         the number of positions
+     */
+    void addNodes (long count) {
+        nodes.addAndGet(count);
+    }
+
+    /**
+     * Report the best result of the search so far.
+     * @param depth         the number of plies searched
+     * @param move          the index of the best move
+     * @param score         the score of the position for the player to move
+     */
+    void update (int depth, int move, int score) {
+        this.depth = depth;
+        this.score = score;
+        this.move = move;
+    }
+
+    /**
+     * Make the search play the best move it has found so far as soon as
+     * possible. Can be called from any thread.
+     */
+    public void stop () {
+        stopped = true;
+    }
+
+    /**
+     * @return              true if the search was told to stop
+     */
+    public boolean isStopped () {
+        return stopped;
+    }
+
+    /**
+     * Get the number of positions visited so far (the number of random games
+     * for Monte Carlo Tree Search).
+     * @return              the number of positions visited
+     */
+    public long getNodes () {
+        return nodes.get();
+    }
+
+    /**
+     * Get how deep the best result so far looked.
+     * @return              the number of plies searched (0 if there is no result yet)
+     */
+    public int getDepth () {
+        return depth;
+    }
+
+    /**
+     * Get the best move found so far.
+     * @return              the index of the cell to play on (-1 if there is no result yet)
+     */
+    public int getMove () {
+        return move;
+    }
+
+    /**
+     * Get the score of the best result so far, on the scale of the engine.
+     * @return              the score of the position for the player to move
+     */
+    public int getScore () {
+        return score;
+    }
+
+}
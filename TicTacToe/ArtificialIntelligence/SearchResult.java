@@ -0,0 +1,99 @@
+package ArtificialIntelligence;
+
+/**
+ * The outcome of a search by an {@link Engine}: the move it chose, the score
+ * it gave the position, how deep it looked and how many positions it visited.
+ */
+public final class SearchResult {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final boolean exact;
+
+    /**
+     * Construct the result of a search that is not known to be the solution
+     * of the position.
+     * @param move          the index of the move chosen
+     * @param score         the score of the position for the player to move
+     * @param depth         the number of plies searched
+     * @param nodes         the number of positions visited
+     */
+    SearchResult (int move, int score, int depth, long nodes) {
+        this(move, score, depth, nodes, false);
+    }
+
+    /**
+     * Construct the result of a search.
+     * @param move          the index of the move chosen
+     * @param score         the score of the position for the player to move
+     * @param depth         the number of plies searched
+     * @param nodes         the number of positions visited
+     * @param exact         true if the move and the score are the solution of the position, with the
+     *                      score on the scale of AlphaBetaAdvanced
+     */
+    SearchResult (int move, int score, int depth, long nodes, boolean exact) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.exact = exact;
+    }
+
+    /**
+     * Get the move chosen by the search.
+     * @return              the index of the cell to play on
+     */
+    public int getMove () {
+        return move;
+    }
+
+    /**
+     * Get the score of the position for the player to move. Higher is better
+     * and 0 is a draw (or nothing is known). Each engine scores on its own
+     * scale, so scores from different engines cannot be compared.
+     * @return              the score of the position
+     */
+    public int getScore () {
+        return score;
+    }
+
+    /**
+     * Get how deep the search looked: the depth of the deepest search that
+     * finished for the searches that deepen, and the depth of the deepest
+     * position in the tree for Monte Carlo Tree Search.
+     * @return              the number of plies searched
+     */
+    public int getDepth () {
+        return depth;
+    }
+
+    /**
+     * Get the number of positions visited by the search (the number of
+     * random games for Monte Carlo Tree Search).
+     * @return              the number of positions visited
+     */
+    public long getNodes () {
+        return nodes;
+    }
+
+    /**
+     * Check whether the result is the solution of the position: a perfect
+     * move, and a score on the scale of AlphaBetaAdvanced that a deeper
+     * search cannot change. Only the Alpha-Beta searches with depth in the
+     * evaluation function (and the solution cache) give exact results, when
+     * they search to the end of the game or find a win or a loss within their
+     * depth.
+     * @return              true if the result is exact
+     */
+    public boolean isExact () {
+        return exact;
+    }
+
+    @Override
+    public String toString () {
+        return "move " + move + ", score " + score + ", depth " + depth + ", " + nodes + " nodes";
+    }
+
+}
@@ -0,0 +1,264 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.Arrays;
+
+/**
+ * Counts what the searches of an engine did: the positions visited at every
+ * depth, where the searches stopped, how often the moves cut off and how
+ * often the transposition table knew the position, and how long it all took.
+ *
+ * Statistics are only collected when an instance is passed to
+ * {@link Engine#search(Board, SearchStatistics)}, so a search without one
+ * pays nothing for them. The counts add up over every search they are passed
+ * to until they are cleared. A parallel search counts on every thread
+ * separately and adds the counts together when it finishes, so the statistics
+ * must not be read while a search is running.
+ */
+public final class SearchStatistics {
+
+    private long[] nodesPerPly = new long[16];
+    private int plies;
+
+    private long leaves;
+    private long terminals;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private long tableProbes;
+    private long tableHits;
+    private long tablebaseHits;
+    private long nanoseconds;
+
+    /**
+     * Construct empty statistics.
+     */
+    public SearchStatistics () {}
+
+    /**
+     * Count a position visited by a search.
+     * @param ply           the number of moves played since the root
+     */
+    void countNode (int ply) {
+        if (ply >= nodesPerPly.length) {
+            nodesPerPly = Arrays.copyOf(nodesPerPly, Math.max(ply + 1, nodesPerPly.length * 2));
+        }
+        nodesPerPly[ply]++;
+        plies = Math.max(plies, ply + 1);
+    }
+
+    /**
+     * Count a position that was not searched any further: a terminal
+     * position if the game is over, and otherwise a leaf where the search
+     * reached its maximum depth.
+     * @param board         the Tic Tac Toe board
+     */
+    void countLeaf (Board board) {
+        if (board.isGameOver()) {
+            terminals++;
+        } else {
+            leaves++;
+        }
+    }
+
+    /**
+     * Count a move that caused a cutoff.
+     * @param index         the number of moves searched before it
+     */
+    void countCutoff (int index) {
+        cutoffs++;
+
+        if (index == 0) {
+            firstMoveCutoffs++;
+        }
+    }
+
+    /**
+     * Count a look up in the transposition table.
+     * @param hit           true if the position was in the table
+     */
+    void countProbe (boolean hit) {
+        tableProbes++;
+
+        if (hit) {
+            tableHits++;
+        }
+    }
+
+    /**
+     * Count a position that was looked up in the tablebase instead of being
+     * searched.
+     */
+    void countTablebaseHit () {
+        tablebaseHits++;
+    }
+
+    /**
+     * Count the time taken by a search.
+     * @param nanoseconds   the time taken
+     */
+    void addTime (long nanoseconds) {
+        this.nanoseconds += nanoseconds;
+    }
+
+    /**
+     * Add the counts of another search to these ones.
+     * @param other         the statistics to add
+     */
+    synchronized void add (SearchStatistics other) {
+        for (int ply = 0; ply < other.plies; ply++) {
+            if (other.nodesPerPly[ply] != 0) {
+                countNode(ply);
+                nodesPerPly[ply] += other.nodesPerPly[ply] - 1;
+            }
+        }
+
+        leaves += other.leaves;
+        terminals += other.terminals;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        tablebaseHits += other.tablebaseHits;
+        nanoseconds += other.nanoseconds;
+    }
+
+    /**
+     * Set every count back to zero.
+     */
+    public void clear () {
+        Arrays.fill(nodesPerPly, 0);
+        plies = 0;
+        leaves = terminals = cutoffs = firstMoveCutoffs = tableProbes = tableHits = tablebaseHits = nanoseconds = 0;
+    }
+
+    /**
+     * Get the number of positions visited.
+     * @return              the number of positions visited at every depth
+     */
+    public long getNodes () {
+        long nodes = 0;
+
+        for (int ply = 0; ply < plies; ply++) {
+            nodes += nodesPerPly[ply];
+        }
+        return nodes;
+    }
+
+    /**
+     * Get the number of positions visited at a depth.
+     * @param ply           the number of moves played since the root (0 for the root)
+     * @return              the number of positions visited at the depth
+     */
+    public long getNodes (int ply) {
+        return (ply < plies) ? nodesPerPly[ply] : 0;
+    }
+
+    /**
+     * Get the number of depths that positions were visited at.
+     * @return              one more than the deepest ply visited
+     */
+    public int getPlies () {
+        return plies;
+    }
+
+    /**
+     * Get the number of positions where a search stopped at its maximum
+     * depth (or where Monte Carlo Tree Search played a random game).
+     * @return              the number of leaves
+     */
+    public long getLeaves () {
+        return leaves;
+    }
+
+    /**
+     * Get the number of positions visited where the game was over.
+     * @return              the number of terminal positions
+     */
+    public long getTerminals () {
+        return terminals;
+    }
+
+    /**
+     * Get the number of moves that caused a cutoff.
+     * @return              the number of cutoffs
+     */
+    public long getCutoffs () {
+        return cutoffs;
+    }
+
+    /**
+     * Get the share of the cutoffs that were caused by the first move
+     * searched. The closer to 1, the better the moves are ordered.
+     * @return              the first move cutoff rate (0 if there were no cutoffs)
+     */
+    public double getFirstMoveCutoffRate () {
+        return (cutoffs == 0) ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * Get the number of look ups in the transposition table.
+     * @return              the number of probes
+     */
+    public long getTableProbes () {
+        return tableProbes;
+    }
+
+    /**
+     * Get the number of look ups that found the position in the
+     * transposition table.
+     * @return              the number of hits
+     */
+    public long getTableHits () {
+        return tableHits;
+    }
+
+    /**
+     * Get the number of positions that were looked up in the tablebase
+     * instead of being searched.
+     * @return              the number of tablebase hits
+     */
+    public long getTablebaseHits () {
+        return tablebaseHits;
+    }
+
+    /**
+     * Get the time taken by the searches.
+     * @return              the elapsed time in nanoseconds
+     */
+    public long getNanoseconds () {
+        return nanoseconds;
+    }
+
+    /**
+     * Get the number of positions visited per second.
+     * @return              the nodes per second (0 if no time was counted)
+     */
+    public long getNodesPerSecond () {
+        return (nanoseconds == 0) ? 0 : (long) (getNodes() * 1e9 / nanoseconds);
+    }
+
+    @Override
+    public String toString () {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("%,d nodes in %.1f ms (%,d nodes/s)%n",
+                getNodes(), nanoseconds / 1e6, getNodesPerSecond()));
+        sb.append("nodes per ply:");
+
+        for (int ply = 0; ply < plies; ply++) {
+            sb.append(String.format(" %,d", nodesPerPly[ply]));
+        }
+
+        sb.append(String.format("%n%,d leaves, %,d terminal positions%n", leaves, terminals));
+        sb.append(String.format("%,d cutoffs, %.1f%% on the first move%n", cutoffs, 100 * getFirstMoveCutoffRate()));
+        sb.append(String.format("%,d table probes, %,d hits", tableProbes, tableHits));
+
+        if (tablebaseHits != 0) {
+            sb.append(String.format("%n%,d tablebase hits", tablebaseHits));
+        }
+
+        return new String(sb);
+    }
+
+}
@@ -0,0 +1,325 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A table of solved positions kept in a file, so that what one run of the
+ * game worked out is known to the next one without searching again.
+ *
+ * The file is mapped into memory rather than read, so opening it costs
+ * nothing however large it is, the positions are loaded from disk by the
+ * operating system as they are looked up, and the table takes no room on the
+ * heap. Any number of processes on the same machine can map the same file at
+ * once and see each other's positions as soon as they are stored.
+ *
+ * Only exact results are stored (see SearchResult.isExact()): those of
+ * searches that reached the end of the game, and those that found a win or a
+ * loss within their depth, whose score no deeper search can change. Both
+ * hold for every engine and every depth. They are looked up by the canonical
+ * hash of the board, so the table answers for the rotations and reflections
+ * of a position too.
+ *
+ * Like TranspositionTable, every entry is two longs, the key being stored
+ * XORed with the packed result, and the entries are grouped into buckets of
+ * two, so that the table can be read and written by several threads and
+ * processes at once without locking. When a bucket is full the entry with
+ * fewer moves left to play is replaced, since it is the quicker one to solve
+ * again. A file that cannot be written to is only read.
+ */
+public final class SolutionCache implements Closeable {
+
+    /**
+     * "TTTCACHE", at the start of every file.
+     */
+    private static final long MAGIC = 0x5454544341434845L;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The header holds the magic number, the version and the number of
+     * entries, and is followed by the entries.
+     */
+    private static final int HEADER_BYTES = 64;
+
+    private static final int BYTES_PER_ENTRY = 16;
+
+    /**
+     * The largest number of entries, so that the whole file fits in one
+     * mapping.
+     */
+    private static final long MAX_ENTRIES = 1L << 26;
+
+    /**
+     * Reads and writes the longs of the mapping atomically.
+     */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final long MISS = 0;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean writable;
+    private final long mask;
+
+    /**
+     * Map a file.
+     * @param channel       the open file
+     * @param buffer        the mapping of the whole file
+     * @param writable      true if the file can be written to
+     * @param entries       the number of entries in the file
+     */
+    private SolutionCache (FileChannel channel, MappedByteBuffer buffer, boolean writable, long entries) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.writable = writable;
+        this.mask = entries - 2;
+    }
+
+    /**
+     * Open a cache, creating the file with room for the given amount of
+     * memory if it does not exist yet. An existing file keeps its own size.
+     * If the file cannot be written to, it is opened to be read only.
+     * @param file          the file of the cache
+     * @param megabytes     the size of a new file
+     * @return              the cache
+     * @throws IOException  if the file cannot be opened or is not a cache
+     */
+    @SuppressWarnings("try") // the lock is only held, never used
+    public static SolutionCache open (Path file, int megabytes) throws IOException {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("The cache must be at least 1 megabyte.");
+        }
+
+        boolean writable = !Files.exists(file) || Files.isWritable(file);
+        FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+
+        try {
+            long entries;
+
+            // Only one process at a time may create the file or check its header.
+            try (FileLock lock = channel.lock(0, Long.MAX_VALUE, !writable)) {
+                if (writable && channel.size() == 0) {
+                    entries = Math.min(Long.highestOneBit(((long) megabytes << 20) / BYTES_PER_ENTRY), MAX_ENTRIES);
+                    entries = Math.max(entries, 2);
+                    writeHeader(channel, entries);
+                } else {
+                    entries = readHeader(channel, file);
+                }
+            }
+
+            MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE
+                    : FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + entries * BYTES_PER_ENTRY);
+            return new SolutionCache(channel, buffer, writable, entries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write the header of a new file and make the file as large as its entries.
+     * @param channel       the empty file
+     * @param entries       the number of entries
+     * @throws IOException  if writing fails
+     */
+    private static void writeHeader (FileChannel channel, long entries) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(0, MAGIC).putInt(8, VERSION).putLong(16, entries);
+        channel.write(header, 0);
+
+        // Write the last byte so that the file has its full size, full of empty entries.
+        channel.write(ByteBuffer.allocate(1), HEADER_BYTES + entries * BYTES_PER_ENTRY - 1);
+    }
+
+    /**
+     * Check the header of an existing file.
+     * @param channel       the file
+     * @param file          the path of the file, for the error messages
+     * @return              the number of entries in the file
+     * @throws IOException  if reading fails or the file is not a cache
+     */
+    private static long readHeader (FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (channel.read(header, 0) != HEADER_BYTES || header.getLong(0) != MAGIC) {
+            throw new IOException("Not a solution cache: " + file);
+        } else if (header.getInt(8) != VERSION) {
+            throw new IOException("Solution cache of another version: " + file);
+        }
+
+        long entries = header.getLong(16);
+
+        if (entries < 2 || entries > MAX_ENTRIES || Long.bitCount(entries) != 1
+                || channel.size() < HEADER_BYTES + entries * BYTES_PER_ENTRY) {
+            throw new IOException("Damaged solution cache: " + file);
+        }
+        return entries;
+    }
+
+    /**
+     * Look up the solution of a position.
+     * @param board         the Tic Tac Toe board
+     * @return              the best move and the score of the position, or null if it is not stored
+     */
+    public SearchResult probe (Board board) {
+        long key = board.getCanonicalHash();
+        long index = key & mask;
+        long entry = read(index, key);
+
+        if (entry == MISS) {
+            entry = read(index + 1, key);
+        }
+
+        if (entry == MISS) {
+            return null;
+        }
+
+        int move = board.getSymmetry().invert(board.getCanonicalSymmetry(), move(entry));
+
+        // Another board with the same hash, or a damaged entry.
+        if (move < 0 || move >= board.getCellCount() || board.getState(move) != Board.State.Blank) {
+            return null;
+        }
+        // The solution is as good as a search to the end of the game, which found it without visiting anything.
+        return new SearchResult(move, score(entry), remaining(entry), 0, true);
+    }
+
+    /**
+     * Store the result of a search if it is the solution of the position
+     * (see {@link SearchResult#isExact()}). Every other result, including
+     * every result of an engine that does not score like AlphaBetaAdvanced,
+     * is left out, so that the file only ever holds solutions.
+     * @param board         the Tic Tac Toe board that was searched
+     * @param result        the result of the search
+     */
+    public void store (Board board, SearchResult result) {
+        int remaining = board.getAvailableMoveCount();
+
+        if (!writable || !result.isExact() || result.getMove() < 0) {
+            return;
+        }
+
+        long key = board.getCanonicalHash();
+        long index = key & mask;
+        int move = board.getSymmetry().apply(board.getCanonicalSymmetry(), result.getMove());
+        long entry = pack(result.getScore(), remaining, move);
+
+        if (read(index, key) != MISS || (read(index + 1, key) == MISS && !shouldReplaceSecond(index))) {
+            write(index, key, entry);
+        } else {
+            write(index + 1, key, entry);
+        }
+    }
+
+    /**
+     * Choose between the two entries of a bucket, neither of which holds the
+     * position being stored.
+     * @param index         the first entry of the bucket
+     * @return              true if the second entry should be replaced
+     */
+    private boolean shouldReplaceSecond (long index) {
+        long first = (long) LONGS.getOpaque(buffer, offset(index) + 8);
+        long second = (long) LONGS.getOpaque(buffer, offset(index + 1) + 8);
+
+        if (first == MISS || second == MISS) {
+            return first != MISS;
+        }
+        return remaining(second) < remaining(first);
+    }
+
+    /**
+     * @param index         the index of an entry
+     * @param key           the hash of a position
+     * @return              the packed entry if it holds the position, and otherwise MISS
+     */
+    private long read (long index, long key) {
+        int offset = offset(index);
+        long entry = (long) LONGS.getOpaque(buffer, offset + 8);
+
+        if (entry != MISS && ((long) LONGS.getOpaque(buffer, offset) ^ entry) == key) {
+            return entry;
+        }
+        return MISS;
+    }
+
+    /**
+     * @param index         the index of an entry
+     * @param key           the hash of a position
+     * @param entry         the packed entry
+     */
+    private void write (long index, long key, long entry) {
+        int offset = offset(index);
+        LONGS.setOpaque(buffer, offset, key ^ entry);
+        LONGS.setOpaque(buffer, offset + 8, entry);
+    }
+
+    /**
+     * @param index         the index of an entry
+     * @return              the offset of the entry in the file
+     */
+    private static int offset (long index) {
+        return (int) (HEADER_BYTES + index * BYTES_PER_ENTRY);
+    }
+
+    /**
+     * Pack the fields of an entry into a long. Bit 31 is always set, so no
+     * packed entry is equal to MISS.
+     */
+    private static long pack (int score, int remaining, int move) {
+        return ((long) score << 32) | (1L << 31) | ((long) remaining << 12) | (move + 1);
+    }
+
+    /**
+     * @param entry         a packed entry
+     * @return              the score of the position
+     */
+    private static int score (long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * @param entry         a packed entry
+     * @return              the number of moves that were left to play in the position
+     */
+    private static int remaining (long entry) {
+        return (int) (entry >>> 12) & 0x7FFFF;
+    }
+
+    /**
+     * @param entry         a packed entry
+     * @return              the index of the best move on the canonical board
+     */
+    private static int move (long entry) {
+        return ((int) entry & 0xFFF) - 1;
+    }
+
+    /**
+     * Write what was stored to the file, and close it. The positions stay on
+     * the disk for the next run.
+     * @throws IOException  if the file cannot be closed
+     */
+    @Override
+    public void close () throws IOException {
+        if (writable) {
+            buffer.force();
+        }
+        channel.close();
+    }
+
+}
@@ -0,0 +1,436 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The value of every position of a board that has at most a given number of
+ * empty cells, worked out in advance by TablebaseGenerator, so that a search
+ * knows the end of the game without searching it.
+ *
+ * The positions are grouped into layers by their number of empty cells.
+ * Within a layer every position has a number of its own, with no gaps and no
+ * two positions sharing one: the rank of the set of empty cells among every
+ * set of that size, times the number of ways to place the pieces of X on the
+ * other cells, plus the rank of the cells of X among those. The table is then
+ * an array of one byte per position, holding the value of the position for the
+ * player to move (WIN, DRAW or LOSS, as in PerfectPlay) and the number of
+ * moves left until the game ends. A byte of 0 is a position that cannot be
+ * reached.
+ *
+ * The file is mapped into memory rather than read, like SolutionCache. Once a
+ * tablebase is installed, every Alpha-Beta search on a board of its size looks
+ * up the positions with few enough empty cells instead of searching them.
+ */
+public final class Tablebase {
+
+    /**
+     * "TTTBASE1", at the start of every file.
+     */
+    private static final long MAGIC = 0x5454544241534531L;
+
+    private static final int VERSION = 1;
+
+    /**
+     * The header holds the magic number, the version, the size of the board
+     * and the largest number of empty cells, and is followed by the layers.
+     */
+    private static final int HEADER_BYTES = 64;
+
+    /**
+     * The cells of a position are kept in the bits of a long.
+     */
+    static final int MAX_CELLS = 64;
+
+    /**
+     * The distance is kept in the lowest 6 bits of an entry.
+     */
+    static final int MAX_EMPTY = 63;
+
+    /**
+     * The binomial coefficients: BINOMIAL[n][k] is the number of ways to
+     * choose k cells out of n.
+     */
+    private static final long[][] BINOMIAL = new long[MAX_CELLS + 1][MAX_CELLS + 1];
+
+    static {
+        for (int n = 0; n <= MAX_CELLS; n++) {
+            BINOMIAL[n][0] = 1;
+
+            for (int k = 1; k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    /**
+     * The tablebase that the Alpha-Beta searches look up (null for none).
+     */
+    private static volatile Tablebase installed;
+
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final int cellCount;
+    private final int maxEmpty;
+    private final long full;
+
+    /**
+     * For every cell, the cells of each of the lines through it.
+     */
+    private final long[][] linesThrough;
+
+    /**
+     * For every number of empty cells, the entries of the positions.
+     */
+    private final ByteBuffer[] layers;
+
+    /**
+     * Construct a tablebase.
+     * @param width         the number of columns
+     * @param height        the number of rows
+     * @param winLength     the number of pieces in a row needed to win
+     * @param maxEmpty      the largest number of empty cells of a position in the table
+     * @param layers        the entries of the positions with 0 to maxEmpty empty cells
+     */
+    Tablebase (int width, int height, int winLength, int maxEmpty, ByteBuffer[] layers) {
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.cellCount = width * height;
+        this.maxEmpty = maxEmpty;
+        this.full = (cellCount == 64) ? -1L : (1L << cellCount) - 1;
+        this.layers = layers;
+
+        this.linesThrough = Playout.getLinesThrough(new Board(width, height, winLength));
+    }
+
+    /**
+     * Check that a table of a board can be made.
+     * @param width         the number of columns
+     * @param height        the number of rows
+     * @param maxEmpty      the largest number of empty cells of a position in the table
+     */
+    static void check (int width, int height, int maxEmpty) {
+        int cellCount = width * height;
+
+        if (cellCount > MAX_CELLS) {
+            throw new IllegalArgumentException("A tablebase can have at most " + MAX_CELLS + " cells.");
+        }
+        if (maxEmpty < 0 || maxEmpty > Math.min(cellCount, MAX_EMPTY)) {
+            throw new IllegalArgumentException("The number of empty cells must be between 0 and "
+                    + Math.min(cellCount, MAX_EMPTY) + ".");
+        }
+
+        for (int empty = 0; empty <= maxEmpty; empty++) {
+            if (getLayerSize(cellCount, empty) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The positions with " + empty + " empty cells do not fit in"
+                        + " a table. Try fewer empty cells.");
+            }
+        }
+    }
+
+    /**
+     * Get the number of positions with a number of empty cells, whether they
+     * can be reached or not.
+     * @param cellCount     the number of cells of the board
+     * @param empty         the number of empty cells
+     * @return              the number of entries in the layer
+     */
+    static long getLayerSize (int cellCount, int empty) {
+        int filled = cellCount - empty;
+        return multiply(BINOMIAL[cellCount][empty], BINOMIAL[filled][(filled + 1) / 2]);
+    }
+
+    /**
+     * @param a             a number of positions
+     * @param b             another number of positions
+     * @return              the product, or Long.MAX_VALUE if it overflows
+     */
+    private static long multiply (long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        return (high != 0 || a * b < 0) ? Long.MAX_VALUE : a * b;
+    }
+
+    /**
+     * Load a tablebase written by TablebaseGenerator. The file is mapped, so
+     * the positions are read from the disk as they are looked up.
+     * @param file          the file of the tablebase
+     * @return              the tablebase
+     * @throws IOException  if the file cannot be read or is not a tablebase
+     */
+    public static Tablebase load (Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (channel.read(header, 0) != HEADER_BYTES || header.getLong(0) != MAGIC) {
+                throw new IOException("Not a tablebase: " + file);
+            } else if (header.getInt(8) != VERSION) {
+                throw new IOException("Tablebase of another version: " + file);
+            }
+
+            int width = header.getInt(12);
+            int height = header.getInt(16);
+            int winLength = header.getInt(20);
+            int maxEmpty = header.getInt(24);
+
+            try {
+                new Board(width, height, winLength);
+                check(width, height, maxEmpty);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Damaged tablebase: " + file, e);
+            }
+
+            ByteBuffer[] layers = new ByteBuffer[maxEmpty + 1];
+            long offset = HEADER_BYTES;
+
+            for (int empty = 0; empty <= maxEmpty; empty++) {
+                long size = getLayerSize(width * height, empty);
+
+                if (offset + size > channel.size()) {
+                    throw new IOException("Damaged tablebase: " + file);
+                }
+                layers[empty] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                offset += size;
+            }
+            return new Tablebase(width, height, winLength, maxEmpty, layers);
+        }
+    }
+
+    /**
+     * Write the tablebase to a file.
+     * @param file          the file to write
+     * @throws IOException  if the file cannot be written
+     */
+    void write (Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(0, MAGIC).putInt(8, VERSION).putInt(12, width).putInt(16, height)
+                    .putInt(20, winLength).putInt(24, maxEmpty);
+            channel.write(header);
+
+            for (ByteBuffer layer : layers) {
+                ByteBuffer all = layer.duplicate();
+                all.clear();
+
+                while (all.hasRemaining()) {
+                    channel.write(all);
+                }
+            }
+        }
+    }
+
+    /**
+     * Make every Alpha-Beta search on a board of this size look up the
+     * positions with few enough empty cells here instead of searching them.
+     * Replaces the tablebase installed before, if any.
+     */
+    public void install () {
+        installed = this;
+    }
+
+    /**
+     * @return              the tablebase that the searches look up (null if there is none)
+     */
+    static Tablebase getInstalled () {
+        return installed;
+    }
+
+    /**
+     * Check whether a position is in the table.
+     * @param board         the Tic Tac Toe board
+     * @return              true if the board is of this size and has few enough empty cells
+     */
+    public boolean covers (Board board) {
+        return board.getAvailableMoveCount() <= maxEmpty
+                && covers(board.getWidth(), board.getHeight(), board.getWinLength());
+    }
+
+    /**
+     * Check whether the table is of a board of a size.
+     * @param width         the number of columns
+     * @param height        the number of rows
+     * @param winLength     the number of pieces in a row needed to win
+     * @return              true if the table holds positions of the board
+     */
+    boolean covers (int width, int height, int winLength) {
+        return width == this.width && height == this.height && winLength == this.winLength;
+    }
+
+    /**
+     * Look up a position, which must be covered by the table.
+     * @param board         the Tic Tac Toe board
+     * @return              the entry of the position (0 if it cannot be reached)
+     */
+    int probe (Board board) {
+        long index = index(board.getCells(Board.State.X, 0), board.getCells(Board.State.O, 0));
+        return get(board.getAvailableMoveCount(), index);
+    }
+
+    /**
+     * @param empty         the number of empty cells
+     * @param index         the number of the position in its layer
+     * @return              the entry of the position
+     */
+    int get (int empty, long index) {
+        return layers[empty].get((int) index) & 0xFF;
+    }
+
+    /**
+     * Get the number of a position within its layer.
+     * @param xs            the cells of X
+     * @param os            the cells of O
+     * @return              the number of the position
+     */
+    long index (long xs, long os) {
+        long filled = xs | os;
+        long xRank = 0;
+        int x = 0;
+
+        // The rank of the cells of X among the filled cells only.
+        for (long bits = xs; bits != 0; bits &= bits - 1) {
+            int position = Long.bitCount(filled & ((1L << Long.numberOfTrailingZeros(bits)) - 1));
+            xRank += BINOMIAL[position][++x];
+        }
+
+        int filledCount = Long.bitCount(filled);
+        return rank(full & ~filled) * BINOMIAL[filledCount][(filledCount + 1) / 2] + xRank;
+    }
+
+    /**
+     * Get the position with a number within its layer.
+     * @param empty         the number of empty cells
+     * @param index         the number of the position
+     * @param cells         where to put the cells of X and then of O
+     */
+    void position (int empty, long index, long[] cells) {
+        int filledCount = cellCount - empty;
+        long arrangements = BINOMIAL[filledCount][(filledCount + 1) / 2];
+        long filled = full & ~unrank(index / arrangements, empty, cellCount);
+        long xPositions = unrank(index % arrangements, (filledCount + 1) / 2, filledCount);
+        long xs = 0;
+
+        // Spread the positions of X among the filled cells out over the board.
+        for (long bits = filled; bits != 0; bits &= bits - 1, xPositions >>>= 1) {
+            if ((xPositions & 1) != 0) {
+                xs |= Long.lowestOneBit(bits);
+            }
+        }
+
+        cells[0] = xs;
+        cells[1] = filled & ~xs;
+    }
+
+    /**
+     * Get the rank of a set of cells among the sets of the same size, in
+     * colexicographic order.
+     * @param cells         the set of cells
+     * @return              the rank of the set
+     */
+    private static long rank (long cells) {
+        long rank = 0;
+        int i = 0;
+
+        for (long bits = cells; bits != 0; bits &= bits - 1) {
+            rank += BINOMIAL[Long.numberOfTrailingZeros(bits)][++i];
+        }
+        return rank;
+    }
+
+    /**
+     * Get the set of cells with a rank among the sets of the same size.
+     * @param rank          the rank of the set
+     * @param size          the number of cells in the set
+     * @param cellCount     the number of cells to choose from
+     * @return              the set of cells
+     */
+    private static long unrank (long rank, int size, int cellCount) {
+        long cells = 0;
+        int cell = cellCount;
+
+        for (int i = size; i >= 1; i--) {
+            do {
+                cell--;
+            } while (BINOMIAL[cell][i] > rank);
+
+            cells |= 1L << cell;
+            rank -= BINOMIAL[cell][i];
+        }
+        return cells;
+    }
+
+    /**
+     * Check whether a piece completes a line.
+     * @param pieces        the cells of the player, with the piece
+     * @param cell          the cell of the piece
+     * @return              true if one of the lines through the cell is full of the player's pieces
+     */
+    boolean completesLine (long pieces, int cell) {
+        for (long line : linesThrough[cell]) {
+            if ((pieces & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a player has won.
+     * @param pieces        the cells of the player
+     * @return              true if one of the lines is full of the player's pieces
+     */
+    boolean hasLine (long pieces) {
+        for (long bits = pieces; bits != 0; bits &= bits - 1) {
+            if (completesLine(pieces, Long.numberOfTrailingZeros(bits))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pack the value of a position and the moves left into an entry.
+     * @param value         WIN, DRAW or LOSS for the player to move
+     * @param distance      the number of moves until the game ends
+     * @return              the entry
+     */
+    static int pack (int value, int distance) {
+        return (value << 6) | distance;
+    }
+
+    /**
+     * @param entry         an entry
+     * @return              WIN, DRAW or LOSS for the player to move (0 if the position cannot be reached)
+     */
+    static int value (int entry) {
+        return entry >>> 6;
+    }
+
+    /**
+     * @param entry         an entry
+     * @return              the number of moves until the game ends
+     */
+    static int distance (int entry) {
+        return entry & 0x3F;
+    }
+
+    /**
+     * @return              the largest number of empty cells of a position in the table
+     */
+    public int getMaxEmpty () {
+        return maxEmpty;
+    }
+
+    @Override
+    public String toString () {
+        return width + "x" + height + " with " + winLength + " in a row, up to " + maxEmpty + " empty cells";
+    }
+
+}
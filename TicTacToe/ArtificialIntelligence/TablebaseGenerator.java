@@ -0,0 +1,268 @@
+package ArtificialIntelligence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Works out a Tablebase by retrograde analysis: backwards from the positions
+ * where the board is full to the positions with the most empty cells wanted.
+ *
+ * Every move fills a cell, so the positions with one more empty cell only
+ * depend on those with one less. The layers are solved in that order, starting
+ * from the full board, and every position in a layer is solved by looking up
+ * each of its moves in the layer below: a position is won if a move wins or
+ * leads to a lost position, drawn if a move leads to a draw, and lost
+ * otherwise. Like PerfectPlay, a win is as quick and a loss as slow as
+ * possible. The positions of a layer are independent of each other, so each
+ * layer is split into chunks that the threads claim one after another.
+ *
+ * Every position of a layer is numbered, including those that cannot be
+ * reached, so the memory needed grows quickly with the size of the board: the
+ * whole 4x4 board takes 10 megabytes, the 4x5 board up to 4 empty cells 140
+ * megabytes, and the 5x5 board up to 2 empty cells 480 megabytes.
+ *
+ * Example (every position of the 4x4 board):
+ * java ArtificialIntelligence.TablebaseGenerator -size 4 4 4 4x4.tb
+ */
+public class TablebaseGenerator {
+
+    /**
+     * The number of positions that a thread claims at a time.
+     */
+    private static final int CHUNK = 1 << 14;
+
+    private final Tablebase tablebase;
+    private final ByteBuffer[] layers;
+    private final int cellCount;
+
+    /**
+     * Construct a generator, with room for every position.
+     * @param width         the number of columns
+     * @param height        the number of rows
+     * @param winLength     the number of pieces in a row needed to win
+     * @param maxEmpty      the largest number of empty cells of a position in the table
+     */
+    TablebaseGenerator (int width, int height, int winLength, int maxEmpty) {
+        Tablebase.check(width, height, maxEmpty);
+
+        cellCount = width * height;
+        layers = new ByteBuffer[maxEmpty + 1];
+
+        for (int empty = 0; empty <= maxEmpty; empty++) {
+            layers[empty] = ByteBuffer.allocate((int) Tablebase.getLayerSize(cellCount, empty));
+        }
+        tablebase = new Tablebase(width, height, winLength, maxEmpty, layers);
+    }
+
+    /**
+     * Solve every layer.
+     * @param threads       the number of threads to solve on
+     * @return              the tablebase
+     */
+    Tablebase run (int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0.");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            for (int empty = 0; empty < layers.length; empty++) {
+                long start = System.nanoTime();
+                long[] counts = solveLayer(executor, threads, empty);
+
+                System.out.printf("%2d empty: %,14d positions, %,12d won, %,12d drawn, %,12d lost in %.1f s%n",
+                        empty, layers[empty].capacity(), counts[PerfectPlay.WIN], counts[PerfectPlay.DRAW],
+                        counts[PerfectPlay.LOSS], (System.nanoTime() - start) / 1e9);
+            }
+            return tablebase;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Solve every position of a layer on the threads of the pool.
+     * @param executor      the pool
+     * @param threads       the number of threads of the pool
+     * @param empty         the number of empty cells of the layer
+     * @return              the number of positions of each value (at the index of the value)
+     */
+    private long[] solveLayer (ExecutorService executor, int threads, int empty) {
+        AtomicLong next = new AtomicLong();
+        List<Future<long[]>> futures = new ArrayList<>();
+        long[] counts = new long[4];
+
+        for (int thread = 0; thread < threads; thread++) {
+            futures.add(executor.submit(() -> solveChunks(empty, next)));
+        }
+
+        try {
+            for (Future<long[]> future : futures) {
+                long[] threadCounts = future.get();
+
+                for (int value = 0; value < counts.length; value++) {
+                    counts[value] += threadCounts[value];
+                }
+            }
+            return counts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The generation was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A position could not be solved.", e.getCause());
+        }
+    }
+
+    /**
+     * Solve chunks of a layer on the calling thread until every chunk has
+     * been claimed.
+     * @param empty         the number of empty cells of the layer
+     * @param next          the first position of the next chunk to claim
+     * @return              the number of positions of each value solved on the thread
+     */
+    private long[] solveChunks (int empty, AtomicLong next) {
+        ByteBuffer layer = layers[empty];
+        long size = layer.capacity();
+        long[] cells = new long[2];
+        long[] counts = new long[4];
+
+        for (long start = next.getAndAdd(CHUNK); start < size; start = next.getAndAdd(CHUNK)) {
+            long end = Math.min(start + CHUNK, size);
+
+            for (long index = start; index < end; index++) {
+                tablebase.position(empty, index, cells);
+                int entry = solve(empty, cells[0], cells[1]);
+
+                layer.put((int) index, (byte) entry);
+                counts[Tablebase.value(entry)]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Solve a position from the layer below it.
+     * @param empty         the number of empty cells
+     * @param xs            the cells of X
+     * @param os            the cells of O
+     * @return              the entry of the position
+     */
+    private int solve (int empty, long xs, long os) {
+        boolean xToMove = ((cellCount - empty) & 1) == 0;
+        long mover = xToMove ? xs : os;
+        long other = xToMove ? os : xs;
+
+        // The player to move has won before the other player's last move.
+        if (tablebase.hasLine(mover)) {
+            return 0;
+        }
+        if (tablebase.hasLine(other)) {
+            return Tablebase.pack(PerfectPlay.LOSS, 0);
+        }
+        if (empty == 0) {
+            return Tablebase.pack(PerfectPlay.DRAW, 0);
+        }
+
+        int best = 0;
+        long filled = xs | os;
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            long bit = 1L << cell;
+
+            if ((filled & bit) != 0) {
+                continue;
+            }
+            if (tablebase.completesLine(mover | bit, cell)) {
+                return Tablebase.pack(PerfectPlay.WIN, 1);
+            }
+
+            long index = xToMove ? tablebase.index(xs | bit, os) : tablebase.index(xs, os | bit);
+            int child = tablebase.get(empty - 1, index);
+
+            // The value of the position after the move is for the other player.
+            int entry = Tablebase.pack(PerfectPlay.WIN + PerfectPlay.LOSS - Tablebase.value(child),
+                    Tablebase.distance(child) + 1);
+
+            if (best == 0 || isBetter(entry, best)) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Compare the outcomes of two moves: a win beats a draw, which beats a
+     * loss, a quicker win beats a slower one, and a slower loss beats a
+     * quicker one.
+     * @param a             the entry of one move
+     * @param b             the entry of the other move
+     * @return              true if the first move is better
+     */
+    private static boolean isBetter (int a, int b) {
+        if (Tablebase.value(a) != Tablebase.value(b)) {
+            return Tablebase.value(a) > Tablebase.value(b);
+        } else if (Tablebase.value(a) == PerfectPlay.WIN) {
+            return Tablebase.distance(a) < Tablebase.distance(b);
+        } else {
+            return Tablebase.distance(a) > Tablebase.distance(b);
+        }
+    }
+
+    /**
+     * Takes the file to write, and optionally:
+     * -size w h k          the board (4 4 4 by default)
+     * -empty n             the largest number of empty cells (every cell by default)
+     * -threads n           the number of threads (every processor by default)
+     * Example (the last 3 moves of the 5x5 board with 4 in a row):
+     * java ArtificialIntelligence.TablebaseGenerator -size 5 5 4 -empty 2 5x5.tb
+     */
+    public static void main (String[] args) throws IOException {
+        int[] size = {4, 4, 4};
+        int maxEmpty = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path file = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-size":
+                    for (int j = 0; j < size.length; j++) {
+                        size[j] = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "-empty":
+                    maxEmpty = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    file = Paths.get(args[i]);
+            }
+        }
+
+        if (file == null) {
+            throw new IllegalArgumentException("The file to write must be given, e.g. 4x4.tb");
+        }
+        if (maxEmpty == -1) {
+            maxEmpty = Math.min(size[0] * size[1], Tablebase.MAX_EMPTY);
+        }
+
+        long start = System.nanoTime();
+        TablebaseGenerator generator = new TablebaseGenerator(size[0], size[1], size[2], maxEmpty);
+        Tablebase tablebase = generator.run(threads);
+        tablebase.write(file);
+
+        System.out.printf("Wrote %s (%s) in %.1f s%n", file, tablebase, (System.nanoTime() - start) / 1e9);
+    }
+
+}
@@ -0,0 +1,330 @@
+package ArtificialIntelligence;
+
+import TicTacToe.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Plays two engines against each other over many games without a user
+ * interface, to tell whether a change made an engine stronger or weaker.
+ *
+ * The games are spread over several threads. Every thread has its own board,
+ * its own pair of engines and its own random number generator, and the threads
+ * only share a counter of the games left to play. The engines take turns
+ * playing X. Most engines always play the same game from the same position,
+ * so every game starts with a few random moves.
+ *
+ * The result is reported from the point of view of the first engine: its
+ * wins, draws and losses with 95% confidence intervals, its score and the
+ * difference in Elo rating that goes with it, the number of games played per
+ * second, and how long each engine took to choose its moves.
+ *
+ * Example (a million games on a 3x3 board, on every processor):
+ * java ArtificialIntelligence.Tournament -games 1000000 alphaBetaAdvanced:2 random
+ */
+public class Tournament {
+
+    /**
+     * The z value of a 95% confidence interval.
+     */
+    private static final double Z = 1.96;
+
+    private final Supplier<Engine> first;
+    private final Supplier<Engine> second;
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final int openingMoves;
+
+    /**
+     * Construct a tournament.
+     * @param first         makes the first engine (one for every thread)
+     * @param second        makes the second engine (one for every thread)
+     * @param width         the number of columns
+     * @param height        the number of rows
+     * @param winLength     the number of pieces in a row needed to win
+     * @param openingMoves  the number of random moves every game starts with
+     */
+    Tournament (Supplier<Engine> first, Supplier<Engine> second, int width, int height, int winLength,
+                int openingMoves) {
+        if (openingMoves < 0 || openingMoves >= width * height) {
+            throw new IllegalArgumentException("The number of opening moves must be between 0 and the number of cells.");
+        }
+
+        this.first = first;
+        this.second = second;
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.openingMoves = openingMoves;
+    }
+
+    /**
+     * Play the games.
+     * @param games         the number of games to play
+     * @param threads       the number of threads to play them on
+     * @param seed          the seed of the random opening moves
+     * @return              the results of every game
+     */
+    Result run (long games, int threads, long seed) {
+        if (games < 1 || threads < 1) {
+            throw new IllegalArgumentException("The number of games and of threads must be greater than 0.");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicLong next = new AtomicLong();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Future<Result>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+
+        try {
+            for (int thread = 0; thread < threads; thread++) {
+                SplittableRandom threadRandom = random.split();
+                futures.add(executor.submit(() -> play(games, next, threadRandom)));
+            }
+
+            Result result = new Result();
+
+            for (Future<Result> future : futures) {
+                result.add(future.get());
+            }
+
+            result.nanoseconds = System.nanoTime() - start;
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The tournament was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Play games on the calling thread until every game has been claimed.
+     * @param games         the number of games to play in all
+     * @param next          the number of the next game to claim
+     * @param random        the random number generator of the thread
+     * @return              the results of the games played on the thread
+     */
+    private Result play (long games, AtomicLong next, SplittableRandom random) {
+        Board board = new Board(width, height, winLength);
+        Engine[] engines = {first.get(), second.get()};
+        int[] moves = new int[board.getCellCount()];
+        Result result = new Result();
+
+        for (long game = next.getAndIncrement(); game < games; game = next.getAndIncrement()) {
+
+            // The first engine plays X in the even games and O in the odd ones.
+            int firstPlayer = (int) (game & 1);
+
+            for (int i = 0; i < openingMoves && !board.isGameOver(); i++) {
+                int count = board.getAvailableMoves(moves);
+                board.move(moves[random.nextInt(count)]);
+            }
+
+            while (!board.isGameOver()) {
+                int engine = (board.getMoveCount() + firstPlayer) & 1;
+                long start = System.nanoTime();
+                int move = engines[engine].search(board).getMove();
+                result.latencies[engine].record(System.nanoTime() - start);
+
+                if (!board.move(move)) {
+                    throw new IllegalStateException("Engine " + (engine + 1) + " played an illegal move: " + move);
+                }
+            }
+
+            Board.State winner = board.getWinner();
+            Board.State firstState = (firstPlayer == 0) ? Board.State.X : Board.State.O;
+
+            if (winner == Board.State.Blank) {
+                result.draws++;
+            } else if (winner == firstState) {
+                result.wins++;
+            } else {
+                result.losses++;
+            }
+
+            while (board.getMoveCount() > 0) {
+                board.undo();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The results of a number of games, from the point of view of the first
+     * engine.
+     */
+    static class Result {
+
+        private long wins;
+        private long draws;
+        private long losses;
+        private long nanoseconds;
+
+        /**
+         * The time each engine took to choose its moves.
+         */
+        private final LatencyHistogram[] latencies = {new LatencyHistogram(), new LatencyHistogram()};
+
+        /**
+         * Add the results of other games to these ones.
+         * @param other         the results to add
+         */
+        private void add (Result other) {
+            wins += other.wins;
+            draws += other.draws;
+            losses += other.losses;
+            latencies[0].add(other.latencies[0]);
+            latencies[1].add(other.latencies[1]);
+        }
+
+        /**
+         * @return              the number of games played
+         */
+        long getGames () {
+            return wins + draws + losses;
+        }
+
+        /**
+         * @return              the share of the points won by the first engine (1 for a win, 1/2 for a draw)
+         */
+        double getScore () {
+            return (wins + draws / 2.0) / getGames();
+        }
+
+        /**
+         * Get the half width of the 95% confidence interval of the score.
+         * @return              the margin of error of the score
+         */
+        double getScoreMargin () {
+            double n = getGames();
+            double score = getScore();
+            double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+                    + losses * Math.pow(score, 2)) / n;
+            return Z * Math.sqrt(variance / n);
+        }
+
+        @Override
+        public String toString () {
+            StringBuilder sb = new StringBuilder();
+            long games = getGames();
+            double score = getScore();
+            double margin = getScoreMargin();
+
+            sb.append(String.format("%,d games in %.1f s (%,.0f games/s)%n",
+                    games, nanoseconds / 1e9, games * 1e9 / nanoseconds));
+            sb.append(rate("wins", wins, games));
+            sb.append(rate("draws", draws, games));
+            sb.append(rate("losses", losses, games));
+            sb.append(String.format("score   %6.2f%% +- %.2f%% (Elo %s [%s, %s])%n", 100 * score, 100 * margin,
+                    elo(score), elo(score - margin), elo(score + margin)));
+            sb.append("move time of engine 1: ").append(latencies[0]).append(String.format("%n"));
+            sb.append("move time of engine 2: ").append(latencies[1]);
+
+            return new String(sb);
+        }
+
+        /**
+         * Format the rate of an outcome with its Wilson score interval.
+         * @param name          the name of the outcome
+         * @param count         the number of games with the outcome
+         * @param games         the number of games
+         * @return              the line to print
+         */
+        private static String rate (String name, long count, long games) {
+            double p = (double) count / games;
+            double z2 = Z * Z;
+            double center = (p + z2 / (2 * games)) / (1 + z2 / games);
+            double margin = Z * Math.sqrt(p * (1 - p) / games + z2 / (4.0 * games * games)) / (1 + z2 / games);
+
+            return String.format("%-7s %6.2f%% [%.2f%%, %.2f%%] (%,d)%n", name, 100 * p,
+                    100 * Math.max(0, center - margin), 100 * Math.min(1, center + margin), count);
+        }
+
+        /**
+         * Convert a score into a difference in Elo rating.
+         * @param score         the share of the points won
+         * @return              the difference in rating, or an infinity sign when the score is 0 or 1
+         */
+        private static String elo (double score) {
+            if (score <= 0) {
+                return "-inf";
+            } else if (score >= 1) {
+                return "+inf";
+            }
+            return String.format("%+d", Math.round(-400 * Math.log10(1 / score - 1)));
+        }
+    }
+
+    /**
+     * Takes the two engines to play (see Engines.named()), and optionally:
+     * -games n             the number of games (10,000 by default)
+     * -threads n           the number of threads (every processor by default)
+     * -size w h k          the board (3 3 3 by default)
+     * -openings n          the number of random moves every game starts with (1 by default)
+     * -seed n              the seed of the random moves
+     * Example:
+     * java ArtificialIntelligence.Tournament -games 100000 -size 4 4 3 alphaBetaAdvanced:3 mtdf:3
+     */
+    public static void main (String[] args) {
+        long games = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int[] size = {3, 3, 3};
+        int openings = 1;
+        long seed = System.nanoTime();
+        List<String> engines = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games":
+                    games = Long.parseLong(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-size":
+                    for (int j = 0; j < size.length; j++) {
+                        size[j] = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "-openings":
+                    openings = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    engines.add(args[i]);
+            }
+        }
+
+        if (engines.size() != 2) {
+            throw new IllegalArgumentException("Two engines must be given, e.g. alphaBetaAdvanced:3 random");
+        }
+
+        String first = engines.get(0), second = engines.get(1);
+
+        // Make an engine of each kind once, so that a wrong name fails here.
+        Engines.named(first);
+        Engines.named(second);
+
+        Tournament tournament = new Tournament(() -> Engines.named(first), () -> Engines.named(second),
+                size[0], size[1], size[2], openings);
+
+        System.out.printf("%s against %s on %dx%d with %d in a row, %d threads, seed %d%n",
+                first, second, size[0], size[1], size[2], threads, seed);
+        System.out.println(tournament.run(games, threads, seed));
+    }
+
+}
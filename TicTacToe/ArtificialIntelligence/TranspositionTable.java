@@ -0,0 +1,227 @@
+package ArtificialIntelligence;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size table of previously searched positions, indexed by the Zobrist
+ * hash of the board.
+ *
+ * Every entry is stored as two longs: the full hash of the position and the
+ * packed result of searching it (score, depth, bound type, best move and the
+ * search that wrote it). The entries are grouped into buckets of two. When a
+ * bucket is full the entry left over from an older search is replaced first,
+ * and otherwise the entry that was searched to the shallower depth.
+ *
+ * The table can be used by several threads at once without locking. The key
+ * of each entry is stored XORed with its packed result, so an entry that is
+ * read while another thread is halfway through writing it does not match its
+ * key and is treated as a miss.
+ */
+class TranspositionTable {
+
+    /**
+     * The score is the exact value of the position.
+     */
+    static final int EXACT = 1;
+
+    /**
+     * The score is a lower bound of the value of the position (it failed high).
+     */
+    static final int LOWER = 2;
+
+    /**
+     * The score is an upper bound of the value of the position (it failed low).
+     */
+    static final int UPPER = 3;
+
+    /**
+     * The value returned by {@link #probe(long)} when the position is not stored.
+     */
+    static final long MISS = 0;
+
+    private static final int BYTES_PER_ENTRY = 16;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * The hash of the position whose search started the current generation.
+     */
+    private volatile long root;
+
+    /**
+     * Construct the transposition table.
+     * @param megabytes     the amount of memory the table may use
+     */
+    TranspositionTable (int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("The table must be at least 1 megabyte.");
+        }
+
+        long capacity = Long.highestOneBit(((long) megabytes << 20) / BYTES_PER_ENTRY);
+        capacity = Math.min(capacity, 1 << 30);
+
+        keys = new long[(int) capacity];
+        entries = new long[(int) capacity];
+        mask = (int) capacity - 2;
+    }
+
+    /**
+     * Mark the beginning of the search of a new position. Entries from the
+     * searches of previous positions remain valid but are the first to be
+     * replaced. Searching the same position again, as pondering does until
+     * the opponent moves, keeps the generation, so that what the earlier
+     * searches stored is not the first to go.
+     * @param root      the hash of the position that is searched
+     */
+    void newSearch (long root) {
+        if (root != this.root) {
+            this.root = root;
+            generation = (generation + 1) & 0xFF;
+        }
+    }
+
+    /**
+     * Remove every entry from the table.
+     */
+    void clear () {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * Look up a position.
+     * @param key       the hash of the position
+     * @return          the packed entry, or MISS if the position is not stored
+     */
+    long probe (long key) {
+        int index = (int) key & mask;
+        long entry = entries[index];
+
+        if (entry != MISS && (keys[index] ^ entry) == key) {
+            return entry;
+        }
+
+        entry = entries[index + 1];
+
+        if (entry != MISS && (keys[index + 1] ^ entry) == key) {
+            return entry;
+        }
+        return MISS;
+    }
+
+    /**
+     * Store the result of searching a position.
+     * @param key       the hash of the position
+     * @param score     the score of the position
+     * @param depth     how many plies below the position were searched
+     * @param bound     EXACT, LOWER or UPPER
+     * @param bestMove  the index of the best move found (-1 if there is none)
+     */
+    void store (long key, int score, int depth, int bound, int bestMove) {
+        int index = (int) key & mask;
+
+        if (holds(index + 1, key) || (!holds(index, key) && shouldReplaceSecond(index))) {
+            index++;
+        }
+
+        // Keep the best move of a previous search when this one did not find one.
+        long previous = entries[index];
+
+        if (bestMove == -1 && previous != MISS && (keys[index] ^ previous) == key) {
+            bestMove = move(previous);
+        }
+
+        long entry = pack(score, depth, bound, bestMove);
+        keys[index] = key ^ entry;
+        entries[index] = entry;
+    }
+
+    /**
+     * @param index     the index of an entry
+     * @param key       the hash of a position
+     * @return          true if the entry holds the position
+     */
+    private boolean holds (int index, long key) {
+        long entry = entries[index];
+        return entry != MISS && (keys[index] ^ entry) == key;
+    }
+
+    /**
+     * Choose between the two entries of a bucket, neither of which holds the
+     * position being stored.
+     * @param index     the first entry of the bucket
+     * @return          true if the second entry should be replaced
+     */
+    private boolean shouldReplaceSecond (int index) {
+        long first = entries[index];
+        long second = entries[index + 1];
+
+        if (first == MISS || second == MISS) {
+            return first != MISS;
+        }
+
+        boolean firstIsOld = generation(first) != generation;
+        boolean secondIsOld = generation(second) != generation;
+
+        if (firstIsOld != secondIsOld) {
+            return secondIsOld;
+        }
+        return depth(second) < depth(first);
+    }
+
+    /**
+     * Pack the fields of an entry into a long. The bound is never 0, so no
+     * packed entry is equal to MISS.
+     */
+    private long pack (int score, int depth, int bound, int bestMove) {
+        return ((long) score << 32)
+                | ((long) generation << 24)
+                | ((long) bound << 22)
+                | ((long) Math.min(depth, 0x3FF) << 12)
+                | (bestMove + 1);
+    }
+
+    /**
+     * @param entry     a packed entry
+     * @return          the score of the position
+     */
+    static int score (long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * @param entry     a packed entry
+     * @return          how many plies below the position were searched
+     */
+    static int depth (long entry) {
+        return (int) (entry >>> 12) & 0x3FF;
+    }
+
+    /**
+     * @param entry     a packed entry
+     * @return          EXACT, LOWER or UPPER
+     */
+    static int bound (long entry) {
+        return (int) (entry >>> 22) & 0x3;
+    }
+
+    /**
+     * @param entry     a packed entry
+     * @return          the index of the best move (-1 if there is none)
+     */
+    static int move (long entry) {
+        return ((int) entry & 0xFFF) - 1;
+    }
+
+    /**
+     * @param entry     a packed entry
+     * @return          the search that stored the entry
+     */
+    private static int generation (long entry) {
+        return (int) (entry >>> 24) & 0xFF;
+    }
+
+}
@@ -1,48 +1,194 @@
 package TicTacToe;
 
+import java.util.Arrays;
 import java.util.HashSet;
 
 /**
  * Represents the Tic Tac Toe board.
+ *
+ * The board can have any width and height (up to MAX_WIDTH), and a player wins
+ * by placing a given number of pieces in a row horizontally, vertically or
+ * diagonally. The classic game is a 3x3 board with 3 in a row.
+ *
+ * The cells are stored as two bitboards, one for each player, split into longs
+ * of 64 cells each. Bit number (y * width + x) is set when the player occupies
+ * the location (x, y).
+ *
+ * The board also counts the pieces of each player in every line of winLength
+ * cells (see {@link Lines}). A move updates the counts of the lines through its
+ * cell and wins when one of them reaches winLength, so finding the winner
+ * takes the same time on every size of board.
  */
 public class Board {
 
-    static final int BOARD_WIDTH = 3;
+    /**
+     * The largest width or height of a board.
+     */
+    public static final int MAX_WIDTH = 31;
 
     public enum State {Blank, X, O}
-    private State[][] board;
+
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final int cellCount;
+
+    /**
+     * The bitboard with every cell set.
+     */
+    private final long[] full;
+
+    /**
+     * The random numbers used for hashing, one per cell for each player, and
+     * the hash of the empty board. They are generated from the dimensions of
+     * the board, so that a position always has the same hash and positions
+     * on boards of different sizes do not share hashes.
+     */
+    private final long[][] zobristKeys;
+    private final long emptyHash;
+
+    private final Symmetry symmetry;
+    private final Lines lines;
+
+    private long[] cellsX;
+    private long[] cellsO;
     private State playersTurn;
     private State winner;
-    private HashSet<Integer> movesAvailable;
+
+    /**
+     * The hash of the position under every symmetry of the board. The first
+     * one is the hash of the position itself.
+     */
+    private long[] hashes;
+
+    /**
+     * The indexes of the moves played so far, in order. Used for undoing moves.
+     */
+    private int[] history;
+
+    /**
+     * The number of pieces each player has in every line.
+     */
+    private int[] lineCountX;
+    private int[] lineCountO;
+
+    /**
+     * For each player (X first), the number of lines that hold a given number
+     * of their pieces and none of the other player's. Only counted once
+     * trackOpenLines() is called (null until then), because keeping the counts
+     * up to date slows down every move.
+     */
+    private int[][] openLines;
 
     private int moveCount;
     private boolean gameOver;
 
     /**
-     * Construct the Tic Tac Toe board.
+     * Construct the classic 3x3 Tic Tac Toe board.
      */
     Board() {
-        board = new State[BOARD_WIDTH][BOARD_WIDTH];
-        movesAvailable = new HashSet<>();
-        reset();
+        this(3, 3, 3);
     }
 
     /**
-     * Set the cells to be blank and load the available moves (all the moves are
-     * available at the start of the game).
+     * Construct a Tic Tac Toe board of any size.
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @param winLength the number of pieces in a row needed to win
      */
-    private void initialize () {
-        for (int row = 0; row < BOARD_WIDTH; row++) {
-            for (int col = 0; col < BOARD_WIDTH; col++) {
-                board[row][col] = State.Blank;
-            }
+    public Board (int width, int height, int winLength) {
+
+        if (width < 1 || width > MAX_WIDTH || height < 1 || height > MAX_WIDTH) {
+            throw new IllegalArgumentException("Width and height must be between 1 and " + MAX_WIDTH + ".");
         }
 
-        movesAvailable.clear();
+        if (winLength < 1 || winLength > Math.max(width, height)) {
+            throw new IllegalArgumentException("Win length must be between 1 and the width or height of the board.");
+        }
+
+        this.width      = width;
+        this.height     = height;
+        this.winLength  = winLength;
+        this.cellCount  = width * height;
+
+        int words = (cellCount + 63) / 64;
 
-        for (int i = 0; i < BOARD_WIDTH*BOARD_WIDTH; i++) {
-            movesAvailable.add(i);
+        full = new long[words];
+        Arrays.fill(full, -1L);
+        if (cellCount % 64 != 0) {
+            full[words - 1] = (1L << cellCount) - 1;
         }
+
+        long seed = 0x5DEECE66DL ^ (((long) width * MAX_WIDTH + height) * MAX_WIDTH + winLength);
+        zobristKeys = new long[2][cellCount];
+        seed = fillZobristKeys(zobristKeys[0], seed);
+        seed = fillZobristKeys(zobristKeys[1], seed);
+        emptyHash = nextRandom(seed);
+
+        symmetry = new Symmetry(width, height);
+        lines = new Lines(width, height, winLength);
+
+        cellsX  = new long[words];
+        cellsO  = new long[words];
+        history = new int[cellCount];
+        hashes  = new long[symmetry.count()];
+        lineCountX = new int[lines.count()];
+        lineCountO = new int[lines.count()];
+        reset();
+    }
+
+    /**
+     * Construct a copy of another Tic Tac Toe board.
+     * @param other     the board to copy
+     */
+    private Board (Board other) {
+        width       = other.width;
+        height      = other.height;
+        winLength   = other.winLength;
+        cellCount   = other.cellCount;
+        full        = other.full;
+        zobristKeys = other.zobristKeys;
+        emptyHash   = other.emptyHash;
+        symmetry    = other.symmetry;
+        lines       = other.lines;
+
+        cellsX      = other.cellsX.clone();
+        cellsO      = other.cellsO.clone();
+        playersTurn = other.playersTurn;
+        winner      = other.winner;
+        hashes      = other.hashes.clone();
+        history     = other.history.clone();
+        lineCountX  = other.lineCountX.clone();
+        lineCountO  = other.lineCountO.clone();
+        openLines   = (other.openLines == null) ? null
+                    : new int[][] {other.openLines[0].clone(), other.openLines[1].clone()};
+        moveCount   = other.moveCount;
+        gameOver    = other.gameOver;
+    }
+
+    /**
+     * Fill an array of Zobrist keys using the SplitMix64 generator.
+     * @param keys      the array to fill
+     * @param seed      the state of the generator
+     * @return          the new state of the generator
+     */
+    private static long fillZobristKeys (long[] keys, long seed) {
+        for (int cell = 0; cell < keys.length; cell++) {
+            seed += 0x9E3779B97F4A7C15L;
+            keys[cell] = nextRandom(seed);
+        }
+        return seed;
+    }
+
+    /**
+     * The output function of the SplitMix64 generator.
+     * @param z         the state of the generator
+     * @return          a well mixed random number
+     */
+    private static long nextRandom (long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 
     /**
@@ -53,55 +199,219 @@ public class Board {
         gameOver = false;
         playersTurn = State.X;
         winner = State.Blank;
-        initialize();
+        Arrays.fill(cellsX, 0);
+        Arrays.fill(cellsO, 0);
+        Arrays.fill(hashes, emptyHash);
+        Arrays.fill(lineCountX, 0);
+        Arrays.fill(lineCountO, 0);
+
+        if (openLines != null) {
+            countOpenLines();
+        }
     }
 
     /**
      * Places an X or an O on the specified index depending on whose turn it is.
-     * @param index     the position on the board (example: index 4 is location (0, 1))
+     * @param index     the position on the board (example: index 4 is location (1, 1) on a 3x3 board)
      * @return          true if the move has not already been played
      */
     public boolean move (int index) {
-        return move(index% BOARD_WIDTH, index/ BOARD_WIDTH);
-    }
-
-    /**
-     * Places an X or an O on the specified location depending on who turn it is.
-     * @param x         the x coordinate of the location
-     * @param y         the y coordinate of the location
-     * @return          true if the move has not already been played
-     */
-    private boolean move (int x, int y) {
 
         if (gameOver) {
             throw new IllegalStateException("TicTacToe is over. No moves can be played.");
         }
 
-        if (board[y][x] == State.Blank) {
-            board[y][x] = playersTurn;
-        } else {
+        if (index < 0 || index >= cellCount) {
+            throw new IllegalArgumentException("Index must be between 0 and " + (cellCount - 1) + ".");
+        }
+
+        int word = index >>> 6;
+        long bit = 1L << index;
+
+        if (((cellsX[word] | cellsO[word]) & bit) != 0) {
             return false;
         }
 
-        moveCount++;
-        movesAvailable.remove(y * BOARD_WIDTH + x);
+        long[] cells = (playersTurn == State.X) ? cellsX : cellsO;
+        cells[word] |= bit;
+
+        updateHashes(index);
+        history[moveCount++] = index;
 
         // The game is a draw.
-        if (moveCount == BOARD_WIDTH * BOARD_WIDTH) {
+        if (moveCount == cellCount) {
             winner = State.Blank;
             gameOver = true;
         }
 
         // Check for a winner.
-        checkRow(y);
-        checkColumn(x);
-        checkDiagonalFromTopLeft(x, y);
-        checkDiagonalFromTopRight(x, y);
+        if (addToLines(index)) {
+            winner = playersTurn;
+            gameOver = true;
+        }
 
         playersTurn = (playersTurn == State.X) ? State.O : State.X;
         return true;
     }
 
+    /**
+     * Take back the most recently played move. Restores the turn, the winner,
+     * the move count and whether the game is over to what they were before
+     * the move was played. Does not allocate.
+     */
+    public void undo () {
+
+        if (moveCount == 0) {
+            throw new IllegalStateException("No moves have been played.");
+        }
+
+        int index = history[--moveCount];
+        long bit = 1L << index;
+
+        cellsX[index >>> 6] &= ~bit;
+        cellsO[index >>> 6] &= ~bit;
+
+        // A move can never be played once the game is over, so the game was
+        // still in progress before the move that is being taken back.
+        winner = State.Blank;
+        gameOver = false;
+        playersTurn = (playersTurn == State.X) ? State.O : State.X;
+        updateHashes(index);
+        removeFromLines(index);
+    }
+
+    /**
+     * Add or remove the piece of the player whose turn it is from the hashes.
+     * @param index     the position of the piece
+     */
+    private void updateHashes (int index) {
+        long[] keys = zobristKeys[playersTurn == State.X ? 0 : 1];
+        int[][] permutations = symmetry.permutations;
+
+        for (int s = 0; s < hashes.length; s++) {
+            hashes[s] ^= keys[permutations[s][index]];
+        }
+    }
+
+    /**
+     * Add the piece of the player whose turn it is to the counts of the lines
+     * through its cell.
+     * @param index     the position of the piece
+     * @return          true if one of the lines is now full of the player's pieces
+     */
+    private boolean addToLines (int index) {
+        if (openLines != null) {
+            return addToOpenLines(index);
+        }
+
+        int[] counts = (playersTurn == State.X) ? lineCountX : lineCountO;
+        boolean won = false;
+
+        for (int line : lines.linesThrough[index]) {
+            won |= (++counts[line] == winLength);
+        }
+        return won;
+    }
+
+    /**
+     * Remove the piece of the player whose turn it is from the counts of the
+     * lines through its cell.
+     * @param index     the position of the piece
+     */
+    private void removeFromLines (int index) {
+        if (openLines != null) {
+            removeFromOpenLines(index);
+            return;
+        }
+
+        int[] counts = (playersTurn == State.X) ? lineCountX : lineCountO;
+
+        for (int line : lines.linesThrough[index]) {
+            counts[line]--;
+        }
+    }
+
+    /**
+     * Add the piece of the player whose turn it is to the counts of the lines
+     * through its cell, and update the counts of open lines.
+     * @param index     the position of the piece
+     * @return          true if one of the lines is now full of the player's pieces
+     */
+    private boolean addToOpenLines (int index) {
+        int side = (playersTurn == State.X) ? 0 : 1;
+        int[] own = (side == 0) ? lineCountX : lineCountO;
+        int[] other = (side == 0) ? lineCountO : lineCountX;
+        boolean won = false;
+
+        for (int line : lines.linesThrough[index]) {
+            int mine = own[line]++;
+            int theirs = other[line];
+
+            // The first piece in a line closes it to the other player.
+            if (mine == 0) {
+                openLines[1 - side][theirs]--;
+            }
+            if (theirs == 0) {
+                openLines[side][mine]--;
+                openLines[side][mine + 1]++;
+            }
+            won |= (mine + 1 == winLength);
+        }
+        return won;
+    }
+
+    /**
+     * Remove the piece of the player whose turn it is from the counts of the
+     * lines through its cell, and update the counts of open lines.
+     * @param index     the position of the piece
+     */
+    private void removeFromOpenLines (int index) {
+        int side = (playersTurn == State.X) ? 0 : 1;
+        int[] own = (side == 0) ? lineCountX : lineCountO;
+        int[] other = (side == 0) ? lineCountO : lineCountX;
+
+        for (int line : lines.linesThrough[index]) {
+            int mine = --own[line];
+            int theirs = other[line];
+
+            if (mine == 0) {
+                openLines[1 - side][theirs]++;
+            }
+            if (theirs == 0) {
+                openLines[side][mine + 1]--;
+                openLines[side][mine]++;
+            }
+        }
+    }
+
+    /**
+     * Count the open lines of both players from scratch.
+     */
+    private void countOpenLines () {
+        for (int[] counts : openLines) {
+            Arrays.fill(counts, 0);
+        }
+
+        for (int line = 0; line < lines.count(); line++) {
+            if (lineCountO[line] == 0) {
+                openLines[0][lineCountX[line]]++;
+            }
+            if (lineCountX[line] == 0) {
+                openLines[1][lineCountO[line]]++;
+            }
+        }
+    }
+
+    /**
+     * Check if the bit of a cell is set.
+     * @param cells     the bitboard
+     * @param index     the position on the board
+     * @return          true if the bit is set
+     */
+    private static boolean isSet (long[] cells, int index) {
+        return (cells[index >>> 6] & (1L << index)) != 0;
+    }
+
     /**
      * Check to see if the game is over (if there is a winner or a draw).
      * @return          true if the game is over
@@ -112,10 +422,180 @@ public class Board {
 
     /**
      * Get a copy of the array that represents the board.
-     * @return          the board array
+     * @return          the board array, indexed by row and then by column
      */
     State[][] toArray () {
-        return board.clone();
+        State[][] array = new State[height][width];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                array[y][x] = getState(y * width + x);
+            }
+        }
+
+        return array;
+    }
+
+    /**
+     * Check what is on the specified index.
+     * @param index     the position on the board
+     * @return          the player occupying the cell (or Blank if it is empty)
+     */
+    public State getState (int index) {
+        if (isSet(cellsX, index)) {
+            return State.X;
+        } else if (isSet(cellsO, index)) {
+            return State.O;
+        } else {
+            return State.Blank;
+        }
+    }
+
+    /**
+     * Get the number of columns.
+     * @return          the width of the board
+     */
+    public int getWidth () {
+        return width;
+    }
+
+    /**
+     * Get the number of rows.
+     * @return          the height of the board
+     */
+    public int getHeight () {
+        return height;
+    }
+
+    /**
+     * Get the number of pieces in a row needed to win.
+     * @return          the win length
+     */
+    public int getWinLength () {
+        return winLength;
+    }
+
+    /**
+     * Get the number of cells on the board.
+     * @return          the width times the height
+     */
+    public int getCellCount () {
+        return cellCount;
+    }
+
+    /**
+     * Get the number of moves that have been played.
+     * @return          the number of pieces on the board
+     */
+    public int getMoveCount () {
+        return moveCount;
+    }
+
+    /**
+     * Get the Zobrist hash of the position. It is updated incrementally as moves
+     * are played and undone, and is the same every time the position occurs.
+     * The player to move is implied by the number of pieces on the board.
+     * @return          the hash of the position
+     */
+    public long getHash () {
+        return hashes[0];
+    }
+
+    /**
+     * Get the hash that is shared by the position and every position that is
+     * a rotation or a reflection of it. Symmetric positions can use it to
+     * share a single entry in a cache.
+     * @return          the smallest hash of the position under any symmetry
+     */
+    public long getCanonicalHash () {
+        return hashes[getCanonicalSymmetry()];
+    }
+
+    /**
+     * Get the symmetry that transforms the position into the one that the
+     * canonical hash belongs to. Moves are translated between the two with
+     * {@link Symmetry#apply(int, int)} and {@link Symmetry#invert(int, int)}.
+     * @return          the symmetry with the smallest hash
+     */
+    public int getCanonicalSymmetry () {
+        int canonical = 0;
+
+        for (int s = 1; s < hashes.length; s++) {
+            if (hashes[s] < hashes[canonical]) {
+                canonical = s;
+            }
+        }
+
+        return canonical;
+    }
+
+    /**
+     * Get 64 of the cells of a player as the bits of a long: bit i of word w
+     * is the cell at index 64 * w + i. Boards of up to 64 cells only have
+     * word 0.
+     * @param player    X or O
+     * @param word      the number of the word
+     * @return          the cells of the player in the word
+     */
+    public long getCells (State player, int word) {
+        return (player == State.X) ? cellsX[word] : cellsO[word];
+    }
+
+    /**
+     * Get the rotations and reflections of the board.
+     * @return          the symmetries of the board
+     */
+    public Symmetry getSymmetry () {
+        return symmetry;
+    }
+
+    /**
+     * Get the lines of winLength cells that a player can win with.
+     * @return          the lines of the board
+     */
+    public Lines getLines () {
+        return lines;
+    }
+
+    /**
+     * Get the number of pieces a player has in a line. The counts are kept up
+     * to date as moves are played and undone, so they cost nothing to look up.
+     * A line is still open to a player while the other player has no pieces
+     * in it.
+     * @param player    X or O
+     * @param line      the number of the line (see {@link #getLines()})
+     * @return          the number of the player's pieces in the line
+     */
+    public int getLineCount (State player, int line) {
+        return (player == State.X) ? lineCountX[line] : lineCountO[line];
+    }
+
+    /**
+     * Start counting the open lines of each player, so that
+     * getOpenLineCount() can be used. Every move played from then on costs a
+     * little more. Copies of the board keep counting them.
+     */
+    public void trackOpenLines () {
+        if (openLines == null) {
+            openLines = new int[2][winLength + 1];
+            countOpenLines();
+        }
+    }
+
+    /**
+     * Get the number of lines that a player can still win with and that
+     * already hold a given number of their pieces. The counts are kept up to
+     * date as moves are played, so they cost nothing to look up.
+     * @param player    X or O
+     * @param pieces    the number of the player's pieces (0 to winLength)
+     * @return          the number of lines with that many of the player's
+     *                  pieces and none of the other player's
+     */
+    public int getOpenLineCount (State player, int pieces) {
+        if (openLines == null) {
+            throw new IllegalStateException("Open lines are not being counted. Call trackOpenLines() first.");
+        }
+        return openLines[player == State.X ? 0 : 1][pieces];
     }
 
     /**
@@ -139,80 +619,132 @@ public class Board {
 
     /**
      * Get the indexes of all the positions on the board that are empty.
+     * The set is built on every call; the search algorithms should use
+     * {@link #getAvailableMoves(int[])} instead.
      * @return          the empty cells
      */
     public HashSet<Integer> getAvailableMoves () {
+        HashSet<Integer> movesAvailable = new HashSet<>();
+        int[] moves = new int[getAvailableMoveCount()];
+        int count = getAvailableMoves(moves);
+
+        for (int i = 0; i < count; i++) {
+            movesAvailable.add(moves[i]);
+        }
+
         return movesAvailable;
     }
 
     /**
-     * Checks the specified row to see if there is a winner.
-     * @param row       the row to check
+     * Write the indexes of all the positions on the board that are empty into
+     * the specified array, in ascending order. Does not allocate.
+     * @param moves     the array to fill (must have room for every empty cell)
+     * @return          the number of empty cells written
      */
-    private void checkRow (int row) {
-        for (int i = 1; i < BOARD_WIDTH; i++) {
-            if (board[row][i] != board[row][i-1]) {
-                break;
-            }
-            if (i == BOARD_WIDTH -1) {
-                winner = playersTurn;
-                gameOver = true;
+    public int getAvailableMoves (int[] moves) {
+        int count = 0;
+
+        for (int word = 0; word < full.length; word++) {
+            long empty = ~(cellsX[word] | cellsO[word]) & full[word];
+
+            while (empty != 0) {
+                moves[count++] = (word << 6) + Long.numberOfTrailingZeros(empty);
+                empty &= empty - 1;
             }
         }
+
+        return count;
     }
 
     /**
-     * Checks the specified column to see if there is a winner.
-     * @param column    the column to check
+     * Write the indexes of the empty positions into the specified array, but
+     * leave out moves that are a rotation or a reflection of another move.
+     * On a symmetric position (for example the empty board, where the four
+     * corners are all the same move) only the smallest index of each group
+     * of equivalent moves is kept. Does not allocate.
+     * @param moves     the array to fill (must have room for every empty cell)
+     * @return          the number of moves written
      */
-    private void checkColumn (int column) {
-        for (int i = 1; i < BOARD_WIDTH; i++) {
-            if (board[i][column] != board[i-1][column]) {
-                break;
+    public int getDistinctMoves (int[] moves) {
+        int count = getAvailableMoves(moves);
+        int symmetries = getInvariantSymmetries();
+
+        if (symmetries == 0) {
+            return count;
+        }
+
+        int distinct = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (isSmallestEquivalentMove(moves[i], symmetries)) {
+                moves[distinct++] = moves[i];
             }
-            if (i == BOARD_WIDTH -1) {
-                winner = playersTurn;
-                gameOver = true;
+        }
+
+        return distinct;
+    }
+
+    /**
+     * Find the symmetries that leave the position unchanged. The hashes only
+     * pick out the candidates: two positions can share a hash, so every
+     * candidate is confirmed by checking that it maps each piece onto a piece
+     * of the same player.
+     * @return          a bit for every symmetry that leaves the position unchanged
+     *                  (bit 0, the identity, is left out)
+     */
+    private int getInvariantSymmetries () {
+        int symmetries = 0;
+
+        for (int s = 1; s < hashes.length; s++) {
+            if (hashes[s] == hashes[0] && isInvariant(s)) {
+                symmetries |= 1 << s;
             }
         }
+
+        return symmetries;
     }
 
     /**
-     * Check the left diagonal to see if there is a winner.
-     * @param x         the x coordinate of the most recently played move
-     * @param y         the y coordinate of the most recently played move
+     * Check that a symmetry maps every piece onto a piece of the same player.
+     * Both players keep the same number of pieces under a symmetry, so the
+     * position is then unchanged.
+     * @param s         the symmetry
+     * @return          true if the symmetry leaves the position unchanged
      */
-    private void checkDiagonalFromTopLeft (int x, int y) {
-        if (x == y) {
-            for (int i = 1; i < BOARD_WIDTH; i++) {
-                if (board[i][i] != board[i-1][i-1]) {
-                    break;
-                }
-                if (i == BOARD_WIDTH -1) {
-                    winner = playersTurn;
-                    gameOver = true;
-                }
+    private boolean isInvariant (int s) {
+        for (int i = 0; i < moveCount; i++) {
+            long[] cells = isSet(cellsX, history[i]) ? cellsX : cellsO;
+
+            if (!isSet(cells, symmetry.apply(s, history[i]))) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
-     * Check the right diagonal to see if there is a winner.
-     * @param x     the x coordinate of the most recently played move
-     * @param y     the y coordinate of the most recently played move
+     * Check that no symmetry which leaves the position unchanged maps the
+     * move onto a smaller index.
+     * @param index     the position of the move
+     * @param symmetries the symmetries that leave the position unchanged, as
+     *                  returned by getInvariantSymmetries()
+     * @return          true if the move is the smallest of its equivalent moves
      */
-    private void checkDiagonalFromTopRight (int x, int y) {
-        if (BOARD_WIDTH -1-x == y) {
-            for (int i = 1; i < BOARD_WIDTH; i++) {
-                if (board[BOARD_WIDTH -1-i][i] != board[BOARD_WIDTH -i][i-1]) {
-                    break;
-                }
-                if (i == BOARD_WIDTH -1) {
-                    winner = playersTurn;
-                    gameOver = true;
-                }
+    private boolean isSmallestEquivalentMove (int index, int symmetries) {
+        for (int s = 1; s < hashes.length; s++) {
+            if ((symmetries & (1 << s)) != 0 && symmetry.apply(s, index) < index) {
+                return false;
             }
         }
+        return true;
+    }
+
+    /**
+     * Get the number of positions on the board that are empty.
+     * @return          the number of empty cells
+     */
+    public int getAvailableMoveCount () {
+        return cellCount - moveCount;
     }
 
     /**
@@ -220,37 +752,27 @@ public class Board {
      * @return      an identical copy of the board
      */
     public Board getDeepCopy () {
-        Board board             = new Board();
-
-        for (int i = 0; i < board.board.length; i++) {
-            board.board[i] = this.board[i].clone();
-        }
-
-        board.playersTurn       = this.playersTurn;
-        board.winner            = this.winner;
-        board.movesAvailable    = new HashSet<>();
-        board.movesAvailable.addAll(this.movesAvailable);
-        board.moveCount         = this.moveCount;
-        board.gameOver          = this.gameOver;
-        return board;
+        return new Board(this);
     }
 
     @Override
     public String toString () {
         StringBuilder sb = new StringBuilder();
 
-        for (int y = 0; y < BOARD_WIDTH; y++) {
-            for (int x = 0; x < BOARD_WIDTH; x++) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+
+                State state = getState(y * width + x);
 
-                if (board[y][x] == State.Blank) {
+                if (state == State.Blank) {
                     sb.append("-");
                 } else {
-                    sb.append(board[y][x].name());
+                    sb.append(state.name());
                 }
                 sb.append(" ");
 
             }
-            if (y != BOARD_WIDTH -1) {
+            if (y != height -1) {
                 sb.append("\n");
             }
         }
@@ -0,0 +1,287 @@
+package TicTacToe;
+
+import ArtificialIntelligence.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Puts load on a Server by connecting many players at once, each playing
+ * random moves for a number of games, and reports how fast the server
+ * answered them.
+ *
+ * Every player runs on a thread of its own and keeps a board of its own to
+ * know which cells are still empty. The report gives the games and moves per
+ * second, the moves the server turned away because the AI was busy, the
+ * errors, and the percentiles of the time from sending a move to reading the
+ * reply.
+ *
+ * Example (100 players of 50 games each, against a server started in the same
+ * process):
+ * java TicTacToe.ClientSimulator -local -clients 100 -games 50
+ */
+public class ClientSimulator {
+
+    private final String host;
+    private final int port;
+    private final int width;
+    private final int height;
+    private final int winLength;
+
+    /**
+     * Construct a simulator.
+     * @param host          the host of the server
+     * @param port          the port of the server
+     * @param width         the number of columns of the games
+     * @param height        the number of rows of the games
+     * @param winLength     the number of pieces in a row needed to win
+     */
+    ClientSimulator (String host, int port, int width, int height, int winLength) {
+        this.host = host;
+        this.port = port;
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+    }
+
+    /**
+     * Connect the players and wait for all of them to finish their games.
+     * @param clients       the number of players at once
+     * @param games         the number of games of each player
+     * @param seed          the seed of the random moves
+     * @return              what the players counted
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Result run (int clients, int games, long seed) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Thread> threads = new ArrayList<>();
+        List<Result> results = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < clients; i++) {
+            Result result = new Result();
+            SplittableRandom clientRandom = random.split();
+            Thread thread = new Thread(() -> play(games, clientRandom, result), "Client " + (i + 1));
+
+            results.add(result);
+            threads.add(thread);
+            thread.start();
+        }
+
+        Result total = new Result();
+
+        for (int i = 0; i < clients; i++) {
+            threads.get(i).join();
+            total.add(results.get(i));
+        }
+
+        total.nanoseconds = System.nanoTime() - start;
+        return total;
+    }
+
+    /**
+     * Play the games of one player.
+     * @param games         the number of games
+     * @param random        the random number generator of the player
+     * @param result        where to count what happened
+     */
+    private void play (int games, SplittableRandom random, Result result) {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    StandardCharsets.UTF_8));
+            Board board = new Board(width, height, winLength);
+            int[] moves = new int[board.getCellCount()];
+
+            String hello = in.readLine();
+
+            if (hello == null || !hello.startsWith("HELLO")) {
+                result.errors++;
+                return;
+            }
+
+            for (int game = 0; game < games; game++) {
+                board.reset();
+
+                if (!send(in, out, "NEW " + width + " " + height + " " + winLength + " X").startsWith("READY")) {
+                    result.errors++;
+                    return;
+                }
+
+                while (!board.isGameOver()) {
+                    int count = board.getAvailableMoves(moves);
+                    int move = moves[random.nextInt(count)];
+
+                    long start = System.nanoTime();
+                    String[] reply = send(in, out, "MOVE " + move).split(" ");
+                    result.latencies.record(System.nanoTime() - start);
+
+                    if (reply[0].equals("ERROR") && reply.length > 1 && reply[1].equals("BUSY")) {
+                        // The move was taken back. Give the AI a moment before trying again.
+                        result.busy++;
+                        Thread.sleep(1);
+                        continue;
+                    } else if (reply[0].equals("AI")) {
+                        board.move(move);
+                        board.move(Integer.parseInt(reply[1]));
+                        result.moves += 2;
+                    } else if (reply[0].equals("OVER")) {
+                        board.move(move);
+                        result.moves++;
+                    } else {
+                        result.errors++;
+                        return;
+                    }
+                }
+                result.games++;
+            }
+
+            send(in, out, "QUIT");
+        } catch (IOException | RuntimeException e) {
+            result.errors++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send a command and read the reply.
+     * @param in            the replies of the server
+     * @param out           the commands to the server
+     * @param command       the command
+     * @return              the reply
+     * @throws IOException  if the connection is closed
+     */
+    private static String send (BufferedReader in, PrintWriter out, String command) throws IOException {
+        out.println(command);
+        out.flush();
+
+        String reply = in.readLine();
+
+        if (reply == null) {
+            throw new IOException("The server hung up.");
+        }
+        return reply;
+    }
+
+    /**
+     * What the players counted.
+     */
+    static class Result {
+
+        private long games;
+        private long moves;
+        private long busy;
+        private long errors;
+        private long nanoseconds;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        /**
+         * Add what another player counted.
+         * @param other         the counts to add
+         */
+        private void add (Result other) {
+            games += other.games;
+            moves += other.moves;
+            busy += other.busy;
+            errors += other.errors;
+            latencies.add(other.latencies);
+        }
+
+        @Override
+        public String toString () {
+            double seconds = nanoseconds / 1e9;
+
+            return String.format("%,d games, %,d moves in %.1f s (%,.0f games/s, %,.0f moves/s), %,d busy, %,d errors%n"
+                            + "reply time: %s",
+                    games, moves, seconds, games / seconds, moves / seconds, busy, errors, latencies);
+        }
+    }
+
+    /**
+     * Takes optionally:
+     * -host name           the host of the server (localhost by default)
+     * -port n              the port of the server (3333 by default)
+     * -local               start a server in this process instead, on any free port
+     * -engine name         the engine of that server (see Engines.named(), play by default)
+     * -clients n           the number of players at once (100 by default)
+     * -games n             the number of games of each player (10 by default)
+     * -size w h k          the board (3 3 3 by default)
+     * -seed n              the seed of the random moves
+     */
+    public static void main (String[] args) throws IOException, InterruptedException {
+        String host = "localhost";
+        int port = 3333;
+        boolean local = false;
+        String engine = "play";
+        int clients = 100;
+        int games = 10;
+        int[] size = {3, 3, 3};
+        long seed = System.nanoTime();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-host":
+                    host = args[++i];
+                    break;
+                case "-port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "-local":
+                    local = true;
+                    break;
+                case "-engine":
+                    engine = args[++i];
+                    break;
+                case "-clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "-games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-size":
+                    for (int j = 0; j < size.length; j++) {
+                        size[j] = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown parameter: " + args[i]);
+            }
+        }
+
+        Server server = null;
+
+        if (local) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            server = new Server(0, engine, threads, 64 * threads, clients);
+            port = server.getPort();
+
+            Thread thread = new Thread(server::serve, "Server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        ClientSimulator simulator = new ClientSimulator(host, port, size[0], size[1], size[2]);
+        System.out.println(simulator.run(clients, games, seed));
+
+        if (server != null) {
+            System.out.println("server: " + server.getMetrics());
+            server.close();
+        }
+    }
+
+}
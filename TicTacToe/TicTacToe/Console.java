@@ -1,7 +1,15 @@
 package TicTacToe;
 
-import ArtificialIntelligence.Algorithms;
-
+import ArtificialIntelligence.Engine;
+import ArtificialIntelligence.Engines;
+import ArtificialIntelligence.Ponderer;
+import ArtificialIntelligence.SearchResult;
+import ArtificialIntelligence.SearchStatistics;
+import ArtificialIntelligence.SolutionCache;
+import ArtificialIntelligence.Tablebase;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
@@ -12,11 +20,51 @@ public class Console {
     private Board board;
     private Scanner sc = new Scanner(System.in);
 
+    /**
+     * The size of a new solution cache.
+     */
+    private static final int CACHE_MEGABYTES = 64;
+
+    /**
+     * The AI: Monte Carlo Tree Search or Engines.play(), looking up the
+     * solution cache first if there is one.
+     */
+    private Engine engine;
+
+    /**
+     * Runs the searches of the AI, and its searches on the player's time if
+     * it ponders.
+     */
+    private Ponderer ponderer;
+    private boolean ponder;
+
+    /**
+     * What the AI counted while choosing its last move (null if the
+     * statistics are not printed).
+     */
+    private SearchStatistics statistics;
+
     /**
      * Construct Console.
+     * @param width         the number of columns
+     * @param height        the number of rows
+     * @param winLength     the number of pieces in a row needed to win
+     * @param monteCarlo    true to play against Monte Carlo Tree Search
+     * @param printStatistics true to print what the AI counted after each of its moves
+     * @param cache         the solved positions to look up before searching (null for none)
+     * @param ponder        true to let the AI search while the player types in a move
      */
-    private Console() {
-        board = new Board();
+    private Console(int width, int height, int winLength, boolean monteCarlo, boolean printStatistics,
+                    SolutionCache cache, boolean ponder) {
+        board = new Board(width, height, winLength);
+        engine = monteCarlo ? Engines.monteCarloTreeSearch() : Engines.play();
+
+        if (cache != null && !monteCarlo) {
+            engine = Engines.cached(engine, cache);
+        }
+        ponderer = new Ponderer(engine);
+        this.ponder = ponder;
+        statistics = printStatistics ? new SearchStatistics() : null;
     }
 
     /**
@@ -47,8 +95,28 @@ public class Console {
         if (board.getTurn() == Board.State.X) {
             getPlayerMove();
         } else {
-            Algorithms.alphaBetaAdvanced(board);
+            SearchResult result = ponderer.search(board, statistics, null).join();
+            board.move(result.getMove());
+            printStatistics(result);
+
+            if (ponder) {
+                ponderer.ponder(board);
+            }
+        }
+    }
+
+    /**
+     * Print out how the AI found its last move, if the statistics are on.
+     * @param result        the result of the search
+     */
+    private void printStatistics (SearchResult result) {
+        if (statistics == null) {
+            return;
         }
+
+        System.out.println("\n" + result);
+        System.out.println(statistics);
+        statistics.clear();
     }
 
     /**
@@ -67,10 +135,10 @@ public class Console {
 
         int move = sc.nextInt();
 
-        if (move < 0 || move >= Board.BOARD_WIDTH* Board.BOARD_WIDTH) {
+        if (move < 0 || move >= board.getCellCount()) {
             System.out.println("\nInvalid move.");
             System.out.println("\nThe index of the move must be between 0 and "
-                    + (Board.BOARD_WIDTH * Board.BOARD_WIDTH - 1) + ", inclusive.");
+                    + (board.getCellCount() - 1) + ", inclusive.");
         } else if (!board.move(move)) {
             System.out.println("\nInvalid move.");
             System.out.println("\nThe selected index must be blank.");
@@ -124,9 +192,51 @@ public class Console {
         }
     }
 
-    public static void main(String[] args) {
-        Console ticTacToe = new Console();
+    /**
+     * The board is 3x3 with 3 in a row unless the width, the height and the
+     * number of pieces in a row needed to win are passed in. The -mcts
+     * parameter plays against Monte Carlo Tree Search, and the -stats
+     * parameter prints what the AI counted while searching for each move. The
+     * -cache parameter and a file keep the positions the AI solves in the
+     * file, so that later games know them without searching. The -tablebase
+     * parameter and a file make the AI look up the end of the game in a
+     * tablebase made by TablebaseGenerator. The -ponder parameter lets the
+     * AI search while the player types in a move.
+     * Example:
+     * java TicTacToe.Console -mcts -stats 7 7 5
+     */
+    public static void main(String[] args) throws IOException {
+        int[] size = {3, 3, 3};
+        int sizeCount = 0;
+        boolean monteCarlo = false;
+        boolean printStatistics = false;
+        boolean ponder = false;
+        SolutionCache cache = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+
+            if (arg.matches("\\d+") && sizeCount < size.length) {
+                size[sizeCount++] = Integer.parseInt(arg);
+            } else if (arg.equals("-mcts")) {
+                monteCarlo = true;
+            } else if (arg.equals("-stats")) {
+                printStatistics = true;
+            } else if (arg.equals("-ponder")) {
+                ponder = true;
+            } else if (arg.equals("-cache") && i + 1 < args.length) {
+                cache = SolutionCache.open(Paths.get(args[++i]), CACHE_MEGABYTES);
+            } else if (arg.equals("-tablebase") && i + 1 < args.length) {
+                Tablebase.load(Paths.get(args[++i])).install();
+            }
+        }
+
+        Console ticTacToe = new Console(size[0], size[1], size[2], monteCarlo, printStatistics, cache, ponder);
         ticTacToe.play();
+
+        if (cache != null) {
+            cache.close();
+        }
     }
 
 }
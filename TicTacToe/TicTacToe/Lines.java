@@ -0,0 +1,130 @@
+package TicTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every line on a Tic Tac Toe board that a player can win with: each run of
+ * winLength cells in a row horizontally, vertically or diagonally.
+ *
+ * The lines are numbered, and the board keeps a count of the pieces each
+ * player has in every line. A move only has to update the lines that go
+ * through its cell, and a player wins when one of their counts reaches
+ * winLength.
+ */
+public class Lines {
+
+    /**
+     * The directions that a line can run in: horizontally, vertically, and
+     * along both diagonals.
+     */
+    private static final int[] DIRECTION_X = {1, 0, 1, 1};
+    private static final int[] DIRECTION_Y = {0, 1, 1, -1};
+
+    /**
+     * For every line, the cells that make it up.
+     */
+    private final int[][] cells;
+
+    /**
+     * For every cell, the lines that go through it.
+     */
+    final int[][] linesThrough;
+
+    /**
+     * Construct the lines of a board.
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @param winLength the number of pieces in a row needed to win
+     */
+    Lines (int width, int height, int winLength) {
+        List<int[]> lines = new ArrayList<>();
+
+        // A single cell is a line in every direction, so only count it once.
+        int directions = (winLength == 1) ? 1 : DIRECTION_X.length;
+
+        for (int direction = 0; direction < directions; direction++) {
+            int dx = DIRECTION_X[direction];
+            int dy = DIRECTION_Y[direction];
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int endX = x + dx * (winLength - 1);
+                    int endY = y + dy * (winLength - 1);
+
+                    if (endX < 0 || endX >= width || endY < 0 || endY >= height) {
+                        continue;
+                    }
+
+                    int[] line = new int[winLength];
+
+                    for (int i = 0; i < winLength; i++) {
+                        line[i] = (y + dy * i) * width + (x + dx * i);
+                    }
+                    lines.add(line);
+                }
+            }
+        }
+
+        cells = lines.toArray(new int[0][]);
+
+        int[] count = new int[width * height];
+
+        for (int[] line : cells) {
+            for (int cell : line) {
+                count[cell]++;
+            }
+        }
+
+        linesThrough = new int[width * height][];
+
+        for (int cell = 0; cell < linesThrough.length; cell++) {
+            linesThrough[cell] = new int[count[cell]];
+            count[cell] = 0;
+        }
+
+        for (int line = 0; line < cells.length; line++) {
+            for (int cell : cells[line]) {
+                linesThrough[cell][count[cell]++] = line;
+            }
+        }
+    }
+
+    /**
+     * Get the number of lines.
+     * @return          the number of ways to get winLength in a row
+     */
+    public int count () {
+        return cells.length;
+    }
+
+    /**
+     * Get a cell of a line.
+     * @param line      the number of the line
+     * @param i         which cell of the line (0 to winLength - 1)
+     * @return          the index of the cell
+     */
+    public int getCell (int line, int i) {
+        return cells[line][i];
+    }
+
+    /**
+     * Get the number of lines that go through a cell.
+     * @param cell      the index of the cell
+     * @return          the number of lines
+     */
+    public int countThrough (int cell) {
+        return linesThrough[cell].length;
+    }
+
+    /**
+     * Get one of the lines that go through a cell.
+     * @param cell      the index of the cell
+     * @param i         which of the lines (0 to countThrough(cell) - 1)
+     * @return          the number of the line
+     */
+    public int getLineThrough (int cell, int i) {
+        return linesThrough[cell][i];
+    }
+
+}
@@ -0,0 +1,625 @@
+package TicTacToe;
+
+import ArtificialIntelligence.Engine;
+import ArtificialIntelligence.Engines;
+import ArtificialIntelligence.LatencyHistogram;
+import ArtificialIntelligence.SolutionCache;
+import ArtificialIntelligence.Tablebase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * For playing Tic Tac Toe against the AI over TCP, with many players at once.
+ *
+ * Every connection is a session with a board and an engine of its own, served
+ * by a thread of its own that spends most of its time waiting for the next
+ * line. The searches of the AI run on a separate pool with one thread per
+ * processor and a bounded queue, so a slow search never holds up reading and
+ * writing, and the server turns moves away when the queue is full instead of
+ * falling further and further behind.
+ *
+ * The protocol is one command per line, and every command gets exactly one
+ * line back. Cells are numbered by index, as in Console.
+ *
+ *   (on connecting)        HELLO TicTacToe
+ *   NEW [w h k] [X|O]      READY w h k side [AI move [OVER winner]]
+ *   MOVE index             AI move [OVER winner], or OVER winner if the move ended the game
+ *   BOARD                  BOARD cells turn (the cells row by row as X, O and -)
+ *   STATS                  STATS and the metrics of the server
+ *   QUIT                   BYE
+ *   (anything wrong)       ERROR reason
+ *
+ * The player is X unless they ask for O, in which case the AI moves first.
+ * The winner is X, O or DRAW. A move is refused with ERROR BUSY, and taken
+ * back, when the AI has too many searches queued, and with another ERROR when
+ * the AI fails. A NEW that the AI should open is refused the same way, and no
+ * game is started.
+ *
+ * Example:
+ * java TicTacToe.Server -port 3333 -engine alphaBetaAdvanced:4
+ */
+public class Server {
+
+    private static final int DEFAULT_PORT = 3333;
+
+    /**
+     * The size of a new solution cache.
+     */
+    private static final int CACHE_MEGABYTES = 256;
+
+    /**
+     * The number of positions the tree of a session can hold when the engine
+     * is monteCarloTreeSearch (20 bytes each), so that the trees of every
+     * session together stay within bounds.
+     */
+    private static final int SESSION_TREE_NODES = 1 << 16;
+
+    /**
+     * A session is closed when its player sends nothing for this long.
+     */
+    private static final int IDLE_MILLISECONDS = 10 * 60 * 1000;
+
+    private final ServerSocket serverSocket;
+    private final String engine;
+    private final Semaphore slots;
+    private final ExecutorService sessions;
+    private final ThreadPoolExecutor ai;
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * The solved positions shared by every session (null for none).
+     */
+    private SolutionCache cache;
+
+    /**
+     * Construct a server and start listening.
+     * @param port          the port to listen on (0 for any free port)
+     * @param engine        the engine to play with (see Engines.named())
+     * @param aiThreads     the number of threads that the AI searches on
+     * @param queue         the number of searches that can wait for a thread
+     * @param maxSessions   the number of sessions that can be open at once
+     * @throws IOException  if the port cannot be listened on
+     */
+    Server (int port, String engine, int aiThreads, int queue, int maxSessions) throws IOException {
+        if (aiThreads < 1 || queue < 1 || maxSessions < 1) {
+            throw new IllegalArgumentException("The threads, queue and sessions must be greater than 0.");
+        }
+
+        // Make an engine once, so that a wrong name fails here.
+        Engines.named(engine);
+
+        this.engine = engine;
+        this.slots = new Semaphore(maxSessions);
+        this.sessions = Executors.newCachedThreadPool(named("Session"));
+        this.ai = new ThreadPoolExecutor(aiThreads, aiThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), named("AI"));
+        this.serverSocket = new ServerSocket(port);
+    }
+
+    /**
+     * @param name          the name of the threads
+     * @return              a factory of daemon threads with the name
+     */
+    private static ThreadFactory named (String name) {
+        AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Look up every position in a cache of solved positions before searching
+     * it, and store what the AI solves there. Must be called before serve().
+     * @param cache         the cache
+     */
+    void setCache (SolutionCache cache) {
+        checkSolves(engine);
+        this.cache = cache;
+    }
+
+    /**
+     * Check that an engine scores positions like AlphaBetaAdvanced, which the
+     * solution cache requires.
+     * @param engine        the engine (see Engines.named())
+     */
+    private static void checkSolves (String engine) {
+        switch (engine.split(":", 2)[0]) {
+            case "play":
+            case "alphaBetaAdvanced":
+            case "iterativeDeepening":
+                return;
+            default:
+                throw new IllegalArgumentException("The cache needs play, alphaBetaAdvanced or iterativeDeepening,"
+                        + " not " + engine + ".");
+        }
+    }
+
+    /**
+     * @return              the port the server listens on
+     */
+    int getPort () {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return              the metrics of the server
+     */
+    Metrics getMetrics () {
+        return metrics;
+    }
+
+    /**
+     * Accept connections until the server is closed.
+     */
+    void serve () {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    break;
+                }
+                continue;
+            }
+
+            if (!slots.tryAcquire()) {
+                refuse(socket);
+                continue;
+            }
+
+            sessions.execute(() -> {
+                try {
+                    new Session(socket).run();
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop accepting connections and stop the searches. The open sessions
+     * end when their players next send something.
+     */
+    void close () {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        ai.shutdownNow();
+        sessions.shutdownNow();
+    }
+
+    /**
+     * Tell a player that there is no room for them and hang up.
+     * @param socket        the connection of the player
+     */
+    private static void refuse (Socket socket) {
+        try (socket) {
+            PrintWriter out = writer(socket);
+            out.println("ERROR FULL");
+            out.flush();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @param socket        a connection
+     * @return              a writer of lines to it, to be flushed after every reply
+     * @throws IOException  if the connection is closed
+     */
+    private static PrintWriter writer (Socket socket) throws IOException {
+        return new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A connection to one player.
+     */
+    private class Session {
+
+        private final Socket socket;
+
+        /**
+         * The AI of the session, made when it first moves, so that a session
+         * that never plays takes up no memory for it.
+         */
+        private Engine engine;
+        private Board board;
+        private Board.State player;
+
+        /**
+         * Construct a session.
+         * @param socket        the connection of the player
+         */
+        private Session (Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Read commands and answer them until the player quits or hangs up.
+         */
+        private void run () {
+            metrics.open.incrementAndGet();
+            metrics.sessions.incrementAndGet();
+
+            try (socket) {
+                socket.setSoTimeout(IDLE_MILLISECONDS);
+                socket.setTcpNoDelay(true);
+
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+                PrintWriter out = writer(socket);
+
+                out.println("HELLO TicTacToe");
+                out.flush();
+
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    String reply = handle(line.trim().split("\\s+"));
+                    out.println(reply);
+                    out.flush();
+
+                    if (reply.equals("BYE")) {
+                        break;
+                    }
+                }
+            } catch (SocketTimeoutException | SocketException ignored) {
+                // The player went quiet or hung up.
+            } catch (IOException ignored) {
+            } finally {
+                metrics.open.decrementAndGet();
+            }
+        }
+
+        /**
+         * Answer a command.
+         * @param command       the words of the command
+         * @return              the reply
+         */
+        private String handle (String[] command) {
+            try {
+                switch (command[0].toUpperCase()) {
+                    case "NEW":
+                        return newGame(command);
+                    case "MOVE":
+                        return move(command);
+                    case "BOARD":
+                        return (board == null) ? "ERROR No game." : "BOARD " + cells() + " " + board.getTurn();
+                    case "STATS":
+                        return "STATS " + metrics;
+                    case "QUIT":
+                        return "BYE";
+                    default:
+                        return "ERROR Unknown command.";
+                }
+            } catch (IllegalArgumentException e) {
+                return "ERROR " + e.getMessage();
+            }
+        }
+
+        /**
+         * Start a new game, and let the AI move first if the player is O.
+         * @param command       NEW, optionally followed by the size and the side of the player
+         * @return              the reply
+         */
+        private String newGame (String[] command) {
+            int[] size = {3, 3, 3};
+            Board.State side = Board.State.X;
+            int sizeCount = 0;
+
+            for (int i = 1; i < command.length; i++) {
+                if (command[i].matches("\\d+") && sizeCount < size.length) {
+                    size[sizeCount++] = Integer.parseInt(command[i]);
+                } else if (command[i].equalsIgnoreCase("X") || command[i].equalsIgnoreCase("O")) {
+                    side = Board.State.valueOf(command[i].toUpperCase());
+                } else {
+                    throw new IllegalArgumentException("Expected NEW [width height winLength] [X|O].");
+                }
+            }
+
+            if (sizeCount != 0 && sizeCount != size.length) {
+                throw new IllegalArgumentException("Expected NEW [width height winLength] [X|O].");
+            }
+
+            if (board == null || board.getWidth() != size[0] || board.getHeight() != size[1]
+                    || board.getWinLength() != size[2]) {
+                board = new Board(size[0], size[1], size[2]);
+            } else {
+                board.reset();
+            }
+
+            String ready = "READY " + size[0] + " " + size[1] + " " + size[2] + " " + side;
+
+            if (side == Board.State.O) {
+                String reply = aiMove();
+
+                // A game the AI could not open is not started at all.
+                if (!reply.startsWith("AI ")) {
+                    board = null;
+                    return reply;
+                }
+                ready += " " + reply;
+            }
+
+            player = side;
+            metrics.games.incrementAndGet();
+            return ready;
+        }
+
+        /**
+         * Play the move of the player and the answer of the AI.
+         * @param command       MOVE and the index of the cell
+         * @return              the reply
+         */
+        private String move (String[] command) {
+            if (board == null || board.isGameOver()) {
+                return "ERROR No game. Send NEW to start one.";
+            }
+            if (command.length != 2 || !command[1].matches("\\d+")) {
+                return "ERROR Expected MOVE index.";
+            }
+
+            int index = Integer.parseInt(command[1]);
+
+            if (index >= board.getCellCount() || !board.move(index)) {
+                return "ERROR Invalid move.";
+            }
+            metrics.moves.incrementAndGet();
+
+            if (board.isGameOver()) {
+                return over();
+            }
+
+            String reply = aiMove();
+
+            // The AI did not move, so the move is taken back and can be sent again.
+            if (!reply.startsWith("AI ")) {
+                board.undo();
+                metrics.moves.decrementAndGet();
+            }
+            return reply;
+        }
+
+        /**
+         * Let the AI choose and play its move on the pool of the AI. The AI
+         * searches a copy of the board, so that a search which is still
+         * running or failed halfway through cannot touch the board of the
+         * session. The board is only played on if the reply is AI and the
+         * move.
+         * @return              the reply
+         */
+        private String aiMove () {
+            long start = System.nanoTime();
+            Future<Integer> future;
+
+            try {
+                Engine engine = engine();
+                Board position = board.getDeepCopy();
+                future = ai.submit(() -> engine.search(position).getMove());
+            } catch (RejectedExecutionException e) {
+                metrics.rejected.incrementAndGet();
+                return "ERROR BUSY";
+            }
+
+            int move;
+
+            try {
+                move = future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                return "ERROR Server shutting down.";
+            } catch (ExecutionException e) {
+                return "ERROR The AI failed: " + e.getCause();
+            }
+
+            metrics.recordSearch(System.nanoTime() - start);
+            metrics.moves.incrementAndGet();
+            board.move(move);
+
+            return board.isGameOver() ? "AI " + move + " " + over() : "AI " + move;
+        }
+
+        /**
+         * @return              the AI of the session, made the first time it is needed
+         */
+        private Engine engine () {
+            if (engine == null) {
+                engine = Engines.named(Server.this.engine, SESSION_TREE_NODES);
+
+                if (cache != null) {
+                    engine = Engines.cached(engine, cache);
+                }
+            }
+            return engine;
+        }
+
+        /**
+         * @return              OVER and the winner of the game
+         */
+        private String over () {
+            Board.State winner = board.getWinner();
+            return "OVER " + ((winner == Board.State.Blank) ? "DRAW" : winner.name());
+        }
+
+        /**
+         * @return              every cell of the board as X, O or -
+         */
+        private String cells () {
+            StringBuilder sb = new StringBuilder(board.getCellCount());
+
+            for (int i = 0; i < board.getCellCount(); i++) {
+                Board.State state = board.getState(i);
+                sb.append((state == Board.State.Blank) ? '-' : state.name().charAt(0));
+            }
+            return new String(sb);
+        }
+    }
+
+    /**
+     * What the server has done so far, safe to read and update from any
+     * thread.
+     */
+    static class Metrics {
+
+        private final long start = System.nanoTime();
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicLong sessions = new AtomicLong();
+        private final AtomicLong games = new AtomicLong();
+        private final AtomicLong moves = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        /**
+         * The time from asking the AI for a move to getting it, including the
+         * time spent waiting in the queue.
+         */
+        private final LatencyHistogram searches = new LatencyHistogram();
+
+        /**
+         * The number of moves and the time when the metrics were last
+         * reported, to report the moves per second since then.
+         */
+        private long lastMoves;
+        private long lastReport = start;
+
+        /**
+         * Count the time taken by the AI to answer a move.
+         * @param nanoseconds   the time
+         */
+        private synchronized void recordSearch (long nanoseconds) {
+            searches.record(nanoseconds);
+        }
+
+        /**
+         * Describe what happened since the last report, for printing the
+         * metrics every few seconds.
+         * @return              the metrics with the moves per second since the last report
+         */
+        synchronized String report () {
+            long now = System.nanoTime();
+            long moves = this.moves.get();
+            double perSecond = (moves - lastMoves) * 1e9 / Math.max(now - lastReport, 1);
+
+            lastMoves = moves;
+            lastReport = now;
+
+            return String.format("%d open, %,d sessions, %,d games, %,.0f moves/s, %,d busy, AI %s",
+                    open.get(), sessions.get(), games.get(), perSecond, rejected.get(), searches);
+        }
+
+        @Override
+        public synchronized String toString () {
+            long moves = this.moves.get();
+            double perSecond = moves * 1e9 / Math.max(System.nanoTime() - start, 1);
+
+            return String.format("open=%d sessions=%d games=%d moves=%d moves/s=%.0f busy=%d"
+                            + " ai.p50=%d ai.p99=%d ai.max=%d (ns)",
+                    open.get(), sessions.get(), games.get(), moves, perSecond, rejected.get(),
+                    searches.getPercentile(50), searches.getPercentile(99), searches.getMax());
+        }
+    }
+
+    /**
+     * Takes optionally:
+     * -port n              the port to listen on (3333 by default)
+     * -engine name         the engine to play with (see Engines.named(), play by default)
+     * -threads n           the number of threads for the AI (every processor by default)
+     * -queue n             the number of searches that can wait for a thread (64 per thread by default)
+     * -sessions n          the number of players at once (10,000 by default)
+     * -report seconds      how often to print the metrics (every 10 seconds by default, 0 for never)
+     * -cache file          keep the solved positions in a file, shared with other servers (see SolutionCache);
+     *                      only with play, alphaBetaAdvanced or iterativeDeepening
+     * -tablebase file      look up the end of the game in a tablebase (see TablebaseGenerator)
+     */
+    public static void main (String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String engine = "play";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        int maxSessions = 10_000;
+        int report = 10;
+        String cache = null;
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing the value of parameter: " + args[i]);
+            }
+
+            switch (args[i]) {
+                case "-port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-engine":
+                    engine = args[i + 1];
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-queue":
+                    queue = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-sessions":
+                    maxSessions = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-report":
+                    report = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-cache":
+                    cache = args[i + 1];
+                    break;
+                case "-tablebase":
+                    Tablebase.load(Paths.get(args[i + 1])).install();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown parameter: " + args[i]);
+            }
+        }
+
+        if (cache != null) {
+            checkSolves(engine);
+        }
+
+        Server server = new Server(port, engine, threads, (queue == -1) ? 64 * threads : queue, maxSessions);
+        System.out.println("Listening on port " + server.getPort() + ", playing " + engine + ".");
+
+        if (cache != null) {
+            server.setCache(SolutionCache.open(Paths.get(cache), CACHE_MEGABYTES));
+        }
+
+        if (report > 0) {
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(named("Report"));
+            reporter.scheduleAtFixedRate(() -> System.out.println(server.getMetrics().report()),
+                    report, report, TimeUnit.SECONDS);
+        }
+
+        server.serve();
+    }
+
+}
@@ -0,0 +1,101 @@
+package TicTacToe;
+
+/**
+ * The rotations and reflections that map a Tic Tac Toe board onto itself.
+ *
+ * A square board has 8 of them and a rectangular board has 4. Each one is
+ * stored as a permutation of the cell indexes, so that a position and all of
+ * its moves can be translated into the frame of any symmetric position.
+ * Symmetry 0 is always the identity.
+ */
+public class Symmetry {
+
+    /**
+     * For every symmetry, the index that each cell is moved to.
+     */
+    final int[][] permutations;
+
+    /**
+     * For every symmetry, the index that each cell is moved back from.
+     */
+    private final int[][] inverses;
+
+    /**
+     * Construct the symmetries of a board.
+     * @param width     the number of columns
+     * @param height    the number of rows
+     */
+    Symmetry (int width, int height) {
+        int count = (width == height) ? 8 : 4;
+        int cells = width * height;
+
+        permutations = new int[count][cells];
+        inverses = new int[count][cells];
+
+        for (int symmetry = 0; symmetry < count; symmetry++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int index = transform(symmetry, x, y, width, height);
+                    permutations[symmetry][y * width + x] = index;
+                    inverses[symmetry][index] = y * width + x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Move a location according to a symmetry. The first four symmetries are
+     * valid for any board, the last four only for square boards.
+     * @param symmetry  the symmetry to apply
+     * @param x         the x coordinate of the location
+     * @param y         the y coordinate of the location
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @return          the index of the location that (x, y) is moved to
+     */
+    private static int transform (int symmetry, int x, int y, int width, int height) {
+        int right = width - 1 - x;
+        int bottom = height - 1 - y;
+
+        switch (symmetry) {
+            case 0:  return y * width + x;            // Identity.
+            case 1:  return y * width + right;        // Mirror left to right.
+            case 2:  return bottom * width + x;       // Mirror top to bottom.
+            case 3:  return bottom * width + right;   // Rotate by 180 degrees.
+            case 4:  return x * width + y;            // Mirror on the diagonal from the top left.
+            case 5:  return right * width + bottom;   // Mirror on the diagonal from the top right.
+            case 6:  return x * width + bottom;       // Rotate by 90 degrees clockwise.
+            default: return right * width + y;        // Rotate by 90 degrees counterclockwise.
+        }
+    }
+
+    /**
+     * Get the number of symmetries.
+     * @return          8 for a square board, 4 otherwise
+     */
+    public int count () {
+        return permutations.length;
+    }
+
+    /**
+     * Translate a move into the frame of the transformed board.
+     * @param symmetry  the symmetry to apply
+     * @param index     the position on the original board
+     * @return          the position on the transformed board
+     */
+    public int apply (int symmetry, int index) {
+        return permutations[symmetry][index];
+    }
+
+    /**
+     * Translate a move from the frame of the transformed board back to the
+     * original board.
+     * @param symmetry  the symmetry that was applied
+     * @param index     the position on the transformed board
+     * @return          the position on the original board
+     */
+    public int invert (int symmetry, int index) {
+        return inverses[symmetry][index];
+    }
+
+}
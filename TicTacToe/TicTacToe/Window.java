@@ -3,11 +3,14 @@ package TicTacToe;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletionException;
 
 import ArtificialIntelligence.*;
 
@@ -16,60 +19,113 @@ public class Window extends JFrame {
     private static final int WIDTH = 600;
     private static final int HEIGHT = 600;
 
+    /**
+     * The distance from the edge of the window to the first cell, and the
+     * size of a cell on the classic 3x3 board (as drawn in the background
+     * image). Larger boards shrink their cells to fit in the window.
+     */
+    private static final int MARGIN = 14;
+    private static final int CLASSIC_CELL_SIZE = 190;
+
+    private static final Color BACKGROUND_COLOR = new Color(23, 83, 106);
+    private static final Color LINE_COLOR = new Color(255, 255, 255);
+
+    /**
+     * How often the window is repainted while the AI thinks, and how opaque
+     * the best move it has found so far is drawn.
+     */
+    private static final int FRAME_MILLISECONDS = 1000 / 60;
+    private static final float THINKING_ALPHA = 0.35f;
+
     private Board board;
     private Panel panel;
     private BufferedImage imageBackground, imageX, imageO;
 
-    private enum Mode {Player, AI}
+    private enum Mode {Player, AI, MonteCarlo}
     private Mode mode;
 
     /**
-     * The center location of each of the cells is stored here.
-     * Used for identifying which cell the player has clicked on.
+     * The size of a new solution cache.
      */
-    private Point[] cells;
+    private static final int CACHE_MEGABYTES = 64;
 
     /**
-     * The distance away from the center of a cell that will register
-     * as a click.
+     * The AI: Monte Carlo Tree Search or Engines.play(), looking up the
+     * solution cache first if there is one (null in Player vs. Player mode).
      */
-    private static final int DISTANCE = 100;
+    private Engine engine;
+
+    /**
+     * Runs the searches of the AI on a thread of its own, so that the window
+     * keeps drawing and answering while the AI thinks, and its searches on
+     * the player's time if it ponders (null in Player vs. Player mode).
+     */
+    private Ponderer ponderer;
+    private boolean ponder;
+
+    /**
+     * The progress of the search of the AI while it is on move (null while
+     * the player is on move). The board is not played on until the search
+     * finishes, and clicks are ignored until then.
+     */
+    private SearchProgress thinking;
+
+    /**
+     * Repaints the window while the AI thinks, to show its progress.
+     */
+    private Timer animation;
+
+    /**
+     * The width and height of a cell in pixels.
+     */
+    private int cellSize;
 
     /**
      * Construct the Window.
      */
     private Window () {
-        this(Mode.AI);
+        this(Mode.AI, 3, 3, 3, null, false);
     }
 
     /**
      * Construct the Window.
-     * @param mode      the game mode (Player vs. Player or Player vs. AI)
+     * @param mode      the game mode (Player vs. Player, Player vs. AI or Player vs. Monte Carlo AI)
+     * @param width     the number of columns
+     * @param height    the number of rows
+     * @param winLength the number of pieces in a row needed to win
+     * @param cache     the solved positions to look up before searching (null for none)
+     * @param ponder    true to let the AI search while the player is on move
      */
-    private Window (Mode mode) {
+    private Window (Mode mode, int width, int height, int winLength, SolutionCache cache, boolean ponder) {
         this.mode = mode;
-        board = new Board();
-        loadCells();
+        this.ponder = ponder;
+        board = new Board(width, height, winLength);
+
+        if (mode == Mode.MonteCarlo) {
+            engine = Engines.monteCarloTreeSearch();
+        } else if (mode == Mode.AI) {
+            engine = (cache == null) ? Engines.play() : Engines.cached(Engines.play(), cache);
+        }
+
+        if (engine != null) {
+            ponderer = new Ponderer(engine);
+        }
+
+        cellSize = isClassic() ? CLASSIC_CELL_SIZE : (WIDTH - 2*MARGIN) / Math.max(width, height);
         panel = createPanel();
+        animation = new Timer(FRAME_MILLISECONDS, e -> panel.repaint());
+        bindKeys();
         setWindowProperties();
         loadImages();
     }
 
     /**
-     * Load the locations of the center of each of the cells.
+     * Check if the board is the classic 3x3 board, which is drawn with the
+     * background image.
+     * @return      true if the board is 3x3
      */
-    private void loadCells () {
-        cells = new Point[9];
-
-        cells[0] = new Point(109, 109);
-        cells[1] = new Point(299, 109);
-        cells[2] = new Point(489, 109);
-        cells[3] = new Point(109, 299);
-        cells[4] = new Point(299, 299);
-        cells[5] = new Point(489, 299);
-        cells[6] = new Point(109, 489);
-        cells[7] = new Point(299, 489);
-        cells[8] = new Point(489, 489);
+    private boolean isClassic () {
+        return board.getWidth() == 3 && board.getHeight() == 3;
     }
 
     /**
@@ -91,11 +147,128 @@ public class Window extends JFrame {
         Panel panel = new Panel();
         Container cp = getContentPane();
         cp.add(panel);
-        panel.setPreferredSize(new Dimension(WIDTH, HEIGHT));
+        if (isClassic()) {
+            panel.setPreferredSize(new Dimension(WIDTH, HEIGHT));
+        } else {
+            panel.setPreferredSize(new Dimension(2*MARGIN + cellSize * board.getWidth(),
+                    2*MARGIN + cellSize * board.getHeight()));
+        }
         panel.addMouseListener(new MyMouseAdapter());
         return panel;
     }
 
+    /**
+     * Make the space bar tell the AI to play the best move it has found so
+     * far, and escape start a new game at any time.
+     */
+    private void bindKeys () {
+        InputMap inputs = panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actions = panel.getActionMap();
+
+        inputs.put(KeyStroke.getKeyStroke("SPACE"), "moveNow");
+        inputs.put(KeyStroke.getKeyStroke("ESCAPE"), "reset");
+
+        actions.put("moveNow", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (thinking != null) {
+                    thinking.stop();
+                }
+            }
+        });
+        actions.put("reset", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                reset();
+            }
+        });
+    }
+
+    /**
+     * Let the AI search for its move on the thread of the ponderer. The search
+     * is given a copy of the board, and its move is played on the event
+     * dispatch thread when it finishes, unless the game was reset in the
+     * meantime.
+     */
+    private void think () {
+        SearchProgress progress = new SearchProgress();
+        thinking = progress;
+        animation.start();
+
+        ponderer.search(board, null, progress).whenComplete((result, error) ->
+                SwingUtilities.invokeLater(() -> finishThinking(progress, result, error)));
+    }
+
+    /**
+     * Play the move of a search of the AI that finished, and let the AI
+     * ponder on the player's time if it does. If the search failed, the
+     * player is told and chooses between searching again and a new game, so
+     * the AI never passes its turn.
+     * @param progress  the progress of the search
+     * @param result    the result of the search (null if it failed)
+     * @param error     why the search failed (null if it did not)
+     */
+    private void finishThinking (SearchProgress progress, SearchResult result, Throwable error) {
+        if (progress != thinking) {
+            return;
+        }
+
+        thinking = null;
+        animation.stop();
+
+        if (error != null) {
+            reportFailure(error);
+            return;
+        }
+
+        board.move(result.getMove());
+
+        if (ponder) {
+            ponderer.ponder(board);
+        }
+        panel.repaint();
+    }
+
+    /**
+     * Tell the player that the AI could not choose a move, and let them
+     * choose between letting it search again and starting a new game. The
+     * window takes no clicks while the message is shown.
+     * @param error     why the search failed
+     */
+    private void reportFailure (Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null)
+                ? error.getCause() : error;
+        String[] options = {"Retry", "New Game"};
+
+        int choice = JOptionPane.showOptionDialog(this, "The AI could not choose a move:\n" + cause,
+                "Tic Tac Toe", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE, null, options, options[0]);
+
+        if (choice == 0) {
+            think();
+        } else {
+            reset();
+        }
+    }
+
+    /**
+     * Start a new game. If the AI is thinking, its search is stopped and its
+     * move is thrown away, and if it is pondering, that is stopped too.
+     */
+    private void reset () {
+        if (thinking != null) {
+            thinking.stop();
+            thinking = null;
+            animation.stop();
+        }
+
+        if (ponderer != null) {
+            ponderer.stop();
+        }
+
+        board.reset();
+        panel.repaint();
+    }
+
     /**
      * Load the image of the background and the images of the X and O
      */
@@ -142,6 +315,7 @@ public class Window extends JFrame {
         private void paintTicTacToe (Graphics2D g) {
             setProperties(g);
             paintBoard(g);
+            paintThinking(g);
             paintWinner(g);
         }
 
@@ -154,7 +328,6 @@ public class Window extends JFrame {
                     RenderingHints.VALUE_INTERPOLATION_BILINEAR);
             g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                     RenderingHints.VALUE_ANTIALIAS_ON);
-            g.drawImage(imageBackground, 0, 0, null);
 
             // The first time a string is drawn it tends to lag.
             // Drawing something trivial at the beginning loads the font up.
@@ -163,25 +336,99 @@ public class Window extends JFrame {
         }
 
         /**
-         * Paints the background image and the X's and O's.
+         * Paints the background and the X's and O's.
          * @param g     the Graphics object that will perform the panting
          */
         private void paintBoard (Graphics2D g) {
             Board.State[][] boardArray = board.toArray();
 
-            int offset = 20;
+            if (isClassic()) {
+                g.drawImage(imageBackground, 0, 0, null);
+            } else {
+                paintGrid(g);
+            }
 
-            for (int y = 0; y < 3; y++) {
-                for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                for (int x = 0; x < board.getWidth(); x++) {
                     if (boardArray[y][x] == Board.State.X) {
-                        g.drawImage(imageX, offset + 190 * x, offset + 190 * y, null);
+                        paintPiece(g, imageX, x, y);
                     } else if (boardArray[y][x] == Board.State.O) {
-                        g.drawImage(imageO, offset + 190 * x, offset + 190 * y, null);
+                        paintPiece(g, imageO, x, y);
                     }
                 }
             }
         }
 
+        /**
+         * Paints an X or an O in a cell.
+         * @param g     the Graphics object that will perform the panting
+         * @param image the image of the X or the O
+         * @param x     the column of the cell
+         * @param y     the row of the cell
+         */
+        private void paintPiece (Graphics2D g, BufferedImage image, int x, int y) {
+            int offset = MARGIN + 6;
+
+            if (isClassic()) {
+                g.drawImage(image, offset + cellSize * x, offset + cellSize * y, null);
+            } else {
+                g.drawImage(image, offset + cellSize * x, offset + cellSize * y, cellSize - 12, cellSize - 12, null);
+            }
+        }
+
+        /**
+         * Paints the progress of the AI while it thinks: its best move so far
+         * as a faint piece, and the depth and the positions it has searched
+         * along the bottom edge.
+         * @param g     the Graphics object that will perform the panting
+         */
+        private void paintThinking (Graphics2D g) {
+            if (thinking == null) {
+                return;
+            }
+
+            int move = thinking.getMove();
+
+            if (move != -1) {
+                Composite composite = g.getComposite();
+                g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, THINKING_ALPHA));
+                paintPiece(g, board.getTurn() == Board.State.X ? imageX : imageO,
+                        move % board.getWidth(), move / board.getWidth());
+                g.setComposite(composite);
+            }
+
+            String s = String.format("Thinking: depth %d, %,d positions (space to move now)",
+                    thinking.getDepth(), thinking.getNodes());
+
+            g.setColor(LINE_COLOR);
+            g.setFont(new Font("SansSerif", Font.PLAIN, 11));
+            g.drawString(s, MARGIN, getHeight() - 3);
+        }
+
+        /**
+         * Paints the background and the lines between the cells of a board
+         * that has no background image.
+         * @param g     the Graphics object that will perform the panting
+         */
+        private void paintGrid (Graphics2D g) {
+            g.setColor(BACKGROUND_COLOR);
+            g.fillRect(0, 0, getWidth(), getHeight());
+
+            g.setColor(LINE_COLOR);
+            g.setStroke(new BasicStroke(Math.max(1, cellSize / 40)));
+
+            int right = MARGIN + cellSize * board.getWidth();
+            int bottom = MARGIN + cellSize * board.getHeight();
+
+            for (int x = 1; x < board.getWidth(); x++) {
+                g.drawLine(MARGIN + cellSize * x, MARGIN, MARGIN + cellSize * x, bottom);
+            }
+
+            for (int y = 1; y < board.getHeight(); y++) {
+                g.drawLine(MARGIN, MARGIN + cellSize * y, right, MARGIN + cellSize * y);
+            }
+        }
+
         /**
          * Paints who won to the screen.
          * @param g     the Graphics object that will perform the panting
@@ -199,7 +446,7 @@ public class Window extends JFrame {
                     s = board.getWinner() + " Wins!";
                 }
 
-                g.drawString(s, 300 - getFontMetrics(g.getFont()).stringWidth(s)/2, 315);
+                g.drawString(s, getWidth()/2 - getFontMetrics(g.getFont()).stringWidth(s)/2, getHeight()/2 + 15);
 
             }
         }
@@ -213,9 +460,12 @@ public class Window extends JFrame {
         public void mousePressed(MouseEvent e) {
             super.mouseClicked(e);
 
+            if (thinking != null) {
+                return;
+            }
+
             if (board.isGameOver()) {
-                board.reset();
-                panel.repaint();
+                reset();
             } else {
                 playMove(e);
             }
@@ -231,8 +481,8 @@ public class Window extends JFrame {
 
             if (!board.isGameOver() && move != -1) {
                 boolean validMove = board.move(move);
-                if (mode == Mode.AI && validMove && !board.isGameOver()) {
-                    Algorithms.alphaBetaAdvanced(board);
+                if (engine != null && validMove && !board.isGameOver()) {
+                    think();
                 }
                 panel.repaint();
             }
@@ -244,42 +494,69 @@ public class Window extends JFrame {
          * @return          the index on the Tic Tac Toe board (-1 if invalid click)
          */
         private int getMove (Point point) {
-            for (int i = 0; i < cells.length; i++) {
-                if (distance(cells[i], point) <= DISTANCE) {
-                    return i;
-                }
-            }
-            return -1;
-        }
-
-        /**
-         * Distance between two points. Used for determining if the player has pressed
-         * on a cell to play a move.
-         * @param p1    the first point (intended to be the location of the cell)
-         * @param p2    the second point (intended to be the location of the mouse click)
-         * @return      the distance between the two points
-         */
-        private double distance (Point p1, Point p2) {
-            double xDiff = p1.getX() - p2.getX();
-            double yDiff = p1.getY() - p2.getY();
-
-            double xDiffSquared = xDiff*xDiff;
-            double yDiffSquared = yDiff*yDiff;
+            int x = Math.floorDiv(point.x - MARGIN, cellSize);
+            int y = Math.floorDiv(point.y - MARGIN, cellSize);
 
-            return Math.sqrt(xDiffSquared+yDiffSquared);
+            if (x < 0 || x >= board.getWidth() || y < 0 || y >= board.getHeight()) {
+                return -1;
+            }
+            return y * board.getWidth() + x;
         }
     }
 
-    public static void main(String[] args) {
+    /**
+     * The board is 3x3 with 3 in a row unless the width, the height and the
+     * number of pieces in a row needed to win are passed in. Any other
+     * parameter runs the game in Player vs. Player mode, except -mcts, which
+     * plays against Monte Carlo Tree Search, and -cache and a file, which
+     * keeps the positions the AI solves in the file so that later games know
+     * them without searching, and -tablebase and a file, which makes the AI
+     * look up the end of the game in a tablebase, and -ponder, which lets
+     * the AI search while the player is on move. While the AI thinks, the
+     * space bar makes it play the best move it has found so far, and escape
+     * starts a new game at any time. Example:
+     * java TicTacToe.Window -mcts 7 7 5
+     */
+    public static void main(String[] args) throws IOException {
+
+        Mode mode = Mode.AI;
+        int[] size = {3, 3, 3};
+        int sizeCount = 0;
+        SolutionCache cache = null;
+        boolean ponder = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+
+            if (arg.matches("\\d+") && sizeCount < size.length) {
+                size[sizeCount++] = Integer.parseInt(arg);
+            } else if (arg.equals("-mcts")) {
+                mode = Mode.MonteCarlo;
+            } else if (arg.equals("-ponder")) {
+                ponder = true;
+            } else if (arg.equals("-cache") && i + 1 < args.length) {
+                cache = SolutionCache.open(Paths.get(args[++i]), CACHE_MEGABYTES);
+            } else if (arg.equals("-tablebase") && i + 1 < args.length) {
+                Tablebase.load(Paths.get(args[++i])).install();
+            } else {
+                mode = Mode.Player;
+            }
+        }
 
-        if (args.length == 1) {
+        if (mode == Mode.Player) {
             System.out.println("Game Mode: Player vs. Player");
-            SwingUtilities.invokeLater(() -> new Window(Mode.Player));
+        } else if (mode == Mode.MonteCarlo) {
+            System.out.println("Game Mode: Player vs. AI (Monte Carlo Tree Search)");
         } else {
             System.out.println("Game Mode: Player vs. AI");
-            SwingUtilities.invokeLater(() -> new Window(Mode.AI));
         }
 
+        final Mode selectedMode = mode;
+        final SolutionCache selectedCache = cache;
+        final boolean selectedPonder = ponder;
+        SwingUtilities.invokeLater(() -> new Window(selectedMode, size[0], size[1], size[2], selectedCache,
+                selectedPonder));
+
     }
 
 }